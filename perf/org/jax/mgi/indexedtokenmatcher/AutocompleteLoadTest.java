@@ -0,0 +1,401 @@
+package org.jax.mgi.indexedtokenmatcher;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/* Is: a self-contained load generator for an IndexedTokenMatcher
+ * Does: generates a vocabulary locally, then for each scenario runs a number of simulated users against one shared
+ * 	matcher.  Each user repeatedly picks a string to "type" and searches every prefix of it ("h", "he", "hea", ...),
+ * 	as an autocomplete would.  Reports latency percentiles, throughput, allocation, and GC activity per scenario.
+ * Notes: Needs no network or external data, so it can be run anywhere with "ant loadtest".  Arguments are
+ * 	key=value pairs (see 'usage' below).  If 'maxP99Millis' is given and any scenario's p99 latency exceeds it,
+ * 	exits with a non-zero status so a release build can be gated on tail latency.
+ */
+public class AutocompleteLoadTest {
+	private static String usage = "AutocompleteLoadTest [users=1,50,500] [seconds=10] [warmupSeconds=3] [vocabulary=50000] "
+		+ "[thinkMillis=0] [seed=42] [virtual=false] [columnar=false] [zeroGarbage=false] [maxP99Millis=]";
+
+	//--- instance variables ---//
+
+	private IndexedTokenMatcher<String> matcher;
+	private List<String[]> typedPrefixes;	// strings that simulated users will type, as the prefix after each keystroke
+	private long thinkMillis;				// pause between keystrokes
+	private boolean virtualThreads;			// run each user on a virtual thread (if the JVM has them)
+	private boolean zeroGarbage;			// search with a per-user SearchContext and ResultSink
+
+	//--- public methods ---//
+
+	public static void main(String[] args) throws Exception {
+		Map<String,String> options = new HashMap<String,String>();
+		options.put("users", "1,50,500");
+		options.put("seconds", "10");
+		options.put("warmupSeconds", "3");
+		options.put("vocabulary", "50000");
+		options.put("thinkMillis", "0");
+		options.put("seed", "42");
+		options.put("virtual", "false");
+		options.put("columnar", "false");
+		options.put("zeroGarbage", "false");
+		options.put("maxP99Millis", "");
+
+		for (String arg : args) {
+			int eq = arg.indexOf('=');
+			if ((eq < 0) || !options.containsKey(arg.substring(0, eq))) {
+				System.err.println("Unknown argument: " + arg);
+				System.err.println("Usage: " + usage);
+				System.exit(2);
+			}
+			options.put(arg.substring(0, eq), arg.substring(eq + 1));
+		}
+
+		long seed = Long.parseLong(options.get("seed"));
+		int vocabularySize = Integer.parseInt(options.get("vocabulary"));
+		ITMConfig config = new ITMConfig();
+		config.setColumnarStore(Boolean.parseBoolean(options.get("columnar")));
+
+		List<IndexedObject<String>> vocabulary = generateVocabulary(vocabularySize, new Random(seed));
+		long start = System.currentTimeMillis();
+		IndexedTokenMatcher<String> matcher = new IndexedTokenMatcher<String>(vocabulary, false, config);
+		System.out.println("Built matcher for " + vocabularySize + " generated objects in "
+			+ (System.currentTimeMillis() - start) + " ms");
+
+		AutocompleteLoadTest loadTest = new AutocompleteLoadTest();
+		loadTest.matcher = matcher;
+		loadTest.typedPrefixes = generateTypedPrefixes(vocabulary, new Random(seed + 1));
+		loadTest.thinkMillis = Long.parseLong(options.get("thinkMillis"));
+		loadTest.virtualThreads = Boolean.parseBoolean(options.get("virtual"));
+		loadTest.zeroGarbage = Boolean.parseBoolean(options.get("zeroGarbage"));
+
+		// one short single-user run so the first scenario isn't measuring the interpreter
+		int warmupSeconds = Integer.parseInt(options.get("warmupSeconds"));
+		if (warmupSeconds > 0) {
+			loadTest.runScenario(1, warmupSeconds, seed);
+			System.out.println("Warmed up for " + warmupSeconds + " sec");
+		}
+
+		int seconds = Integer.parseInt(options.get("seconds"));
+		String maxP99 = options.get("maxP99Millis");
+		boolean failed = false;
+
+		System.out.println(String.format("%8s %10s %10s %10s %10s %10s %12s %12s %8s %10s",
+			"users", "searches", "per sec", "p50 ms", "p99 ms", "p999 ms", "max ms", "alloc/search", "gc count", "gc coll ms"));
+		for (String users : options.get("users").split(",")) {
+			ScenarioResult result = loadTest.runScenario(Integer.parseInt(users.trim()), seconds, seed);
+			System.out.println(result.toString());
+			if ((maxP99.length() > 0) && (result.percentileMillis(0.99) > Double.parseDouble(maxP99))) {
+				System.out.println(" - p99 exceeds limit of " + maxP99 + " ms");
+				failed = true;
+			}
+		}
+		if (failed) {
+			System.exit(1);
+		}
+	}
+
+	//--- private methods ---//
+
+	// Run 'users' simulated users concurrently for 'seconds', and collect the results.
+	private ScenarioResult runScenario(int users, int seconds, long seed) throws Exception {
+		final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+		final CountDownLatch startGate = new CountDownLatch(1);
+		final CountDownLatch finished = new CountDownLatch(users);
+		final List<UserSession> sessions = new ArrayList<UserSession>();
+		for (int i = 0; i < users; i++) {
+			sessions.add(new UserSession(new Random(seed + i), deadline, startGate, finished));
+		}
+
+		long gcCountBefore = gcCount();
+		long gcMillisBefore = gcMillis();
+
+		ExecutorService executor = this.newExecutor(users);
+		for (UserSession session : sessions) {
+			executor.execute(session);
+		}
+		long start = System.nanoTime();
+		startGate.countDown();
+		finished.await();
+		long elapsed = System.nanoTime() - start;
+		executor.shutdown();
+
+		ScenarioResult result = new ScenarioResult();
+		result.users = users;
+		result.elapsedNanos = elapsed;
+		result.gcCount = gcCount() - gcCountBefore;
+		result.gcMillis = gcMillis() - gcMillisBefore;
+
+		int total = 0;
+		for (UserSession session : sessions) {
+			total = total + session.count;
+			result.allocatedBytes = result.allocatedBytes + session.allocatedBytes;
+			result.allocationUnavailable = result.allocationUnavailable || session.allocationUnavailable;
+		}
+		result.latencies = new long[total];
+		int pos = 0;
+		for (UserSession session : sessions) {
+			System.arraycopy(session.latencies, 0, result.latencies, pos, session.count);
+			pos = pos + session.count;
+		}
+		Arrays.sort(result.latencies);
+		return result;
+	}
+
+	// Get an executor with one thread per user.  Uses virtual threads when asked and when the running JVM has
+	// them (looked up reflectively, so this still compiles and runs on older JDKs).
+	private ExecutorService newExecutor(int users) {
+		if (this.virtualThreads) {
+			try {
+				Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+				return (ExecutorService) factory.invoke(null);
+			} catch (Exception e) {
+				System.out.println("Virtual threads are not available in this JVM; using platform threads");
+				this.virtualThreads = false;
+			}
+		}
+		return Executors.newFixedThreadPool(users);
+	}
+
+	// total number of collections so far, across all collectors
+	private static long gcCount() {
+		long count = 0;
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			count = count + Math.max(0, gc.getCollectionCount());
+		}
+		return count;
+	}
+
+	// Total time spent collecting so far, across all collectors.  This is collection time, not pause time:
+	// concurrent collectors count the time their background cycles take while the application keeps running.
+	private static long gcMillis() {
+		long millis = 0;
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			millis = millis + Math.max(0, gc.getCollectionTime());
+		}
+		return millis;
+	}
+
+	// bytes allocated so far by the current thread, or -1 if the JVM can't tell us (as for a virtual thread)
+	private static long allocatedBytes() {
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if (threads instanceof com.sun.management.ThreadMXBean) {
+			return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+		return -1;
+	}
+
+	// Generate 'count' objects, each with a 1- to 4-word term and up to two synonyms.  Words are built from
+	// syllables, so they share prefixes the way real vocabulary does.
+	private static List<IndexedObject<String>> generateVocabulary(int count, Random random) {
+		String[] syllables = { "ab", "an", "ar", "ba", "blast", "bo", "ca", "car", "cell", "chon", "cy", "de", "derm",
+			"di", "e", "em", "epi", "gan", "glia", "he", "hy", "in", "ker", "la", "lym", "ma", "me", "mo", "my", "neu",
+			"o", "os", "pa", "per", "pha", "pro", "ra", "re", "ro", "sa", "sto", "te", "the", "tri", "um", "va", "ven" };
+
+		String[] words = new String[Math.max(count / 4, 100)];
+		for (int i = 0; i < words.length; i++) {
+			StringBuffer sb = new StringBuffer();
+			int parts = 1 + random.nextInt(4);
+			for (int p = 0; p < parts; p++) {
+				sb.append(syllables[random.nextInt(syllables.length)]);
+			}
+			words[i] = sb.toString();
+		}
+
+		List<IndexedObject<String>> vocabulary = new ArrayList<IndexedObject<String>>(count);
+		for (int i = 0; i < count; i++) {
+			String term = phrase(words, random);
+			List<String> synonyms = new ArrayList<String>();
+			int synonymCount = random.nextInt(3);
+			for (int s = 0; s < synonymCount; s++) {
+				synonyms.add(phrase(words, random));
+			}
+			vocabulary.add(new GeneratedObject("GEN:" + i, term, synonyms));
+		}
+		return vocabulary;
+	}
+
+	// Build a phrase of one to four words (weighted toward shorter ones) from 'words'.
+	private static String phrase(String[] words, Random random) {
+		int wordCount = 1 + Math.min(random.nextInt(4), random.nextInt(4));
+		StringBuffer sb = new StringBuffer();
+		for (int w = 0; w < wordCount; w++) {
+			if (w > 0) {
+				sb.append(' ');
+			}
+			sb.append(words[random.nextInt(words.length)]);
+		}
+		return sb.toString();
+	}
+
+	// Pick the strings users will type: mostly terms and synonyms from the vocabulary, with some later words
+	// typed first ("stage 2" for "2 stage") and some strings that won't match anything.  Each comes back as its
+	// prefixes ("h", "he", "hea", ...), made up front so the users don't allocate them while being measured.
+	private static List<String[]> generateTypedPrefixes(List<IndexedObject<String>> vocabulary, Random random) {
+		List<String[]> typed = new ArrayList<String[]>();
+		for (int i = 0; i < 10000; i++) {
+			IndexedObject<String> obj = vocabulary.get(random.nextInt(vocabulary.size()));
+			String s = obj.getTerm();
+			if (!obj.getSynonyms().isEmpty() && random.nextBoolean()) {
+				s = obj.getSynonyms().get(random.nextInt(obj.getSynonyms().size()));
+			}
+			int roll = random.nextInt(10);
+			if ((roll == 0) && (s.indexOf(' ') > 0)) {
+				s = s.substring(s.indexOf(' ') + 1) + " " + s.substring(0, s.indexOf(' '));
+			} else if (roll == 1) {
+				s = s + "zq";
+			}
+			String[] prefixes = new String[s.length()];
+			for (int j = 0; j < prefixes.length; j++) {
+				prefixes[j] = s.substring(0, j + 1);
+			}
+			typed.add(prefixes);
+		}
+		return typed;
+	}
+
+	//--- private inner classes ---//
+
+	// one simulated user, typing strings a keystroke at a time until the deadline passes
+	private class UserSession implements Runnable, ResultSink<String> {
+		Random random;
+		long deadline;
+		CountDownLatch startGate;
+		CountDownLatch finished;
+
+		long[] latencies = new long[65536];	// nanoseconds per search
+		int count = 0;						// number of searches done
+		long allocatedBytes = 0;			// bytes allocated by this user's thread within its search calls
+		boolean allocationUnavailable = false;	// true if the JVM couldn't measure 'allocatedBytes'
+		SearchContext context = new SearchContext();
+		int resultCount = 0;				// results passed to this sink by the current search
+
+		UserSession(Random random, long deadline, CountDownLatch startGate, CountDownLatch finished) {
+			this.random = random;
+			this.deadline = deadline;
+			this.startGate = startGate;
+			this.finished = finished;
+		}
+
+		public void run() {
+			try {
+				this.startGate.await();
+				
+				// Measure allocation around each search call alone, so the harness's own bookkeeping isn't counted.
+				// Subtract whatever reading the counter costs, as measured here.
+				long firstReading = allocatedBytes();
+				long overhead = allocatedBytes() - firstReading;
+				while (System.nanoTime() < this.deadline) {
+					String[] prefixes = typedPrefixes.get(this.random.nextInt(typedPrefixes.size()));
+					for (int i = 0; (i < prefixes.length) && (System.nanoTime() < this.deadline); i++) {
+						long allocatedBefore = allocatedBytes();
+						long start = System.nanoTime();
+						if (zeroGarbage) {
+							this.resultCount = 0;
+							matcher.search(prefixes[i], 20, this.context, this);
+						} else {
+							matcher.search(prefixes[i], 20);
+						}
+						long nanos = System.nanoTime() - start;
+						long allocatedAfter = allocatedBytes();
+						if ((allocatedBefore >= 0) && (allocatedAfter >= 0)) {
+							this.allocatedBytes = this.allocatedBytes + (allocatedAfter - allocatedBefore - overhead);
+						} else {
+							this.allocationUnavailable = true;
+						}
+						this.record(nanos);
+						if (thinkMillis > 0) {
+							Thread.sleep(thinkMillis);
+						}
+					}
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} finally {
+				this.finished.countDown();
+			}
+		}
+
+		public void accept(IndexedResult<String> result, int matchType) {
+			this.resultCount++;
+		}
+
+		private void record(long nanos) {
+			if (this.count == this.latencies.length) {
+				this.latencies = Arrays.copyOf(this.latencies, this.count * 2);
+			}
+			this.latencies[this.count++] = nanos;
+		}
+	}
+
+	// measurements from one scenario
+	private static class ScenarioResult {
+		int users;
+		long elapsedNanos;
+		long[] latencies;		// sorted, in nanoseconds
+		long allocatedBytes;
+		boolean allocationUnavailable;	// true if any user's allocation couldn't be measured
+		long gcCount;
+		long gcMillis;			// collection time (see gcMillis()), not pause time
+
+		double percentileMillis(double p) {
+			if (this.latencies.length == 0) {
+				return 0;
+			}
+			int i = (int) Math.ceil(p * this.latencies.length) - 1;
+			return this.latencies[Math.max(0, Math.min(i, this.latencies.length - 1))] / 1000000.0;
+		}
+
+		public String toString() {
+			int n = this.latencies.length;
+			double perSecond = n / (this.elapsedNanos / 1000000000.0);
+			String perSearch = this.allocationUnavailable ? "n/a" : String.valueOf((n == 0) ? 0 : this.allocatedBytes / n);
+			return String.format("%8d %10d %10.0f %10.3f %10.3f %10.3f %12.3f %12s %8d %10d",
+				this.users, n, perSecond, this.percentileMillis(0.50), this.percentileMillis(0.99),
+				this.percentileMillis(0.999), this.percentileMillis(1.0), perSearch, this.gcCount, this.gcMillis);
+		}
+	}
+
+	// a generated vocabulary object; sorting falls back on IndexedResult's default comparator
+	private static class GeneratedObject implements IndexedObject<String> {
+		String key;
+		String term;
+		List<String> synonyms;
+
+		GeneratedObject(String key, String term, List<String> synonyms) {
+			this.key = key;
+			this.term = term;
+			this.synonyms = synonyms;
+		}
+
+		public Comparator<IndexedObject<String>> getComparator() {
+			return null;
+		}
+
+		public String getUniqueKey() {
+			return this.key;
+		}
+
+		public String getTerm() {
+			return this.term;
+		}
+
+		public List<String> getSynonyms() {
+			return this.synonyms;
+		}
+
+		public String getObject() {
+			return this.term;
+		}
+	}
+}
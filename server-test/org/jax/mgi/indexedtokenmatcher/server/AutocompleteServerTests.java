@@ -0,0 +1,128 @@
+package org.jax.mgi.indexedtokenmatcher.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Map;
+
+import org.jax.mgi.indexedtokenmatcher.ITMConfig;
+import org.jax.mgi.indexedtokenmatcher.IndexedTokenMatcherHolder;
+import org.junit.Assert;
+import org.junit.Test;
+
+// includes various tests for the AutocompleteServer class
+public class AutocompleteServerTests {
+	@Test
+	public void parseParamsDecodes() throws Exception {
+		Map<String,String> params = AutocompleteServer.parseParams("index=anatomy&q=heart+muscle%21&max=5&flag&&");
+		Assert.assertEquals("anatomy", params.get("index"));
+		Assert.assertEquals("heart muscle!", params.get("q"));
+		Assert.assertEquals("5", params.get("max"));
+		Assert.assertEquals("", params.get("flag"));
+		Assert.assertEquals(4, params.size());		// the empty pair is skipped
+
+		Assert.assertEquals("r\u00f6\u00f6f", AutocompleteServer.parseParams("q=r%C3%B6%C3%B6f").get("q"));
+		Assert.assertEquals("a=b", AutocompleteServer.parseParams("q=a=b").get("q"));
+		Assert.assertTrue(AutocompleteServer.parseParams(null).isEmpty());
+		Assert.assertTrue(AutocompleteServer.parseParams("").isEmpty());
+	}
+
+	@Test
+	public void setsConfigOptions() {
+		ITMConfig config = new ITMConfig();
+		Assert.assertTrue(AutocompleteServer.setConfigOption(config, "infix", "true"));
+		Assert.assertTrue(AutocompleteServer.setConfigOption(config, "exact", "true"));
+		Assert.assertTrue(AutocompleteServer.setConfigOption(config, "budget", "5000"));
+		Assert.assertFalse(AutocompleteServer.setConfigOption(config, "anatomy", "/data/anatomy.tsv"));
+		Assert.assertTrue(config.useInfixSearch());
+		Assert.assertTrue(config.useExactIndex());
+		Assert.assertFalse(config.useColumnarStore());
+		Assert.assertEquals(5000, config.getMemoryBudget());
+	}
+
+	@Test
+	public void servesRequests() throws Exception {
+		File tsv = File.createTempFile("index", ".tsv");
+		OutputStream out = new FileOutputStream(tsv);
+		out.write(("H:1\thouse\thome|dwelling\nH:2\tkitchen cabinet\t\nH:3\troof\t\n").getBytes("UTF-8"));
+		out.close();
+
+		AutocompleteServer server = new AutocompleteServer();
+		IndexedTokenMatcherHolder<String> holder =
+			new IndexedTokenMatcherHolder<String>(new TabDelimitedSource(tsv.getPath()));
+		holder.rebuildNow();
+		server.addIndex("things", holder);
+		server.start("127.0.0.1", 0);
+		try {
+			String base = "http://127.0.0.1:" + server.getPort();
+
+			Response response = request("GET", base + "/search?index=things&q=hou", null);
+			Assert.assertEquals(200, response.status);
+			Assert.assertEquals("{\"query\":\"hou\",\"results\":[{\"key\":\"H:1\",\"term\":\"house\",\"synonym\":null,"
+				+ "\"matchType\":\"beginsTerm\",\"byTerm\":true}]}", response.body);
+
+			response = request("GET", base + "/search?index=things&q=DWELL", null);
+			Assert.assertEquals("{\"query\":\"DWELL\",\"results\":[{\"key\":\"H:1\",\"term\":\"house\","
+				+ "\"synonym\":\"dwelling\",\"matchType\":\"beginsSynonym\",\"byTerm\":false}]}", response.body);
+
+			response = request("POST", base + "/batch?max=1", "roof\n\nkitchen\n");
+			Assert.assertEquals(200, response.status);
+			Assert.assertTrue(response.body, response.body.startsWith("{\"batch\":[{\"query\":\"roof\",\"results\":"
+				+ "[{\"key\":\"H:3\""));
+			Assert.assertTrue(response.body, response.body.contains("{\"query\":\"kitchen\",\"results\":[{\"key\":\"H:2\""));
+
+			response = request("GET", base + "/search?index=things", null);
+			Assert.assertEquals(400, response.status);
+			Assert.assertEquals("{\"error\":\"missing parameter: q\"}", response.body);
+
+			response = request("GET", base + "/search?index=nothing&q=hou", null);
+			Assert.assertEquals(404, response.status);
+			Assert.assertEquals("{\"error\":\"unknown index: nothing\"}", response.body);
+
+			Assert.assertEquals(404, request("GET", base + "/search/more?q=hou", null).status);
+			Assert.assertEquals(405, request("POST", base + "/search?q=hou", "").status);
+		} finally {
+			server.stop();
+			tsv.delete();
+		}
+	}
+
+	//--- private methods ---//
+
+	// make a request, sending 'body' if it's not null, and read back the status and body (of an error, too)
+	private static Response request(String method, String url, String body) throws Exception {
+		HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+		connection.setRequestMethod(method);
+		if (body != null) {
+			connection.setDoOutput(true);
+			OutputStream out = connection.getOutputStream();
+			out.write(body.getBytes("UTF-8"));
+			out.close();
+		}
+		Response response = new Response();
+		response.status = connection.getResponseCode();
+		InputStream in = (response.status < 400) ? connection.getInputStream() : connection.getErrorStream();
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		if (in != null) {
+			byte[] buffer = new byte[4096];
+			int count;
+			while ((count = in.read(buffer)) > 0) {
+				bytes.write(buffer, 0, count);
+			}
+			in.close();
+		}
+		response.body = bytes.toString("UTF-8");
+		return response;
+	}
+
+	//--- private inner classes ---//
+
+	private static class Response {
+		int status;
+		String body;
+	}
+}
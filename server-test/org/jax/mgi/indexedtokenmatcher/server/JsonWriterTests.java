@@ -0,0 +1,53 @@
+package org.jax.mgi.indexedtokenmatcher.server;
+
+import java.io.StringWriter;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+// includes various tests for the JsonWriter class
+public class JsonWriterTests {
+	@Test
+	public void writesNestedValues() throws Exception {
+		StringWriter out = new StringWriter();
+		JsonWriter json = new JsonWriter(out);
+		json.beginObject();
+		json.name("query").value("house");
+		json.name("count").value(2);
+		json.name("loaded").value(true);
+		json.name("missing").value((String) null);
+		json.name("results").beginArray().value("a").beginObject().endObject().value("b").endArray();
+		json.endObject();
+		json.flush();
+		Assert.assertEquals("{\"query\":\"house\",\"count\":2,\"loaded\":true,\"missing\":null,"
+			+ "\"results\":[\"a\",{},\"b\"]}", out.toString());
+	}
+
+	@Test
+	public void escapesQuotesAndBackslashes() throws Exception {
+		Assert.assertEquals("\"say \\\"hi\\\" to C:\\\\dir\"", write("say \"hi\" to C:\\dir"));
+	}
+
+	@Test
+	public void escapesControlCharacters() throws Exception {
+		Assert.assertEquals("\"a\\nb\\rc\\td\"", write("a\nb\rc\td"));
+		Assert.assertEquals("\"\\u0000\\u0001\\u001f\"", write("\u0000\u0001\u001f"));
+		Assert.assertEquals("\" ~\u007f\"", write(" ~\u007f"));
+	}
+
+	@Test
+	public void escapesLineSeparators() throws Exception {
+		// valid in JSON, but not in JavaScript string literals, so a response could break a JSONP-style consumer
+		Assert.assertEquals("\"a\\u2028b\\u2029c\"", write("a\u2028b\u2029c"));
+		Assert.assertEquals("\"r\u00f6\u00f6f\"", write("r\u00f6\u00f6f"));
+	}
+
+	// write 's' as a lone JSON string value
+	private static String write(String s) throws Exception {
+		StringWriter out = new StringWriter();
+		JsonWriter json = new JsonWriter(out);
+		json.value(s);
+		json.flush();
+		return out.toString();
+	}
+}
@@ -0,0 +1,634 @@
+package org.jax.mgi.indexedtokenmatcher.server;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jax.mgi.indexedtokenmatcher.ITMConfig;
+import org.jax.mgi.indexedtokenmatcher.ITMUtils;
+import org.jax.mgi.indexedtokenmatcher.IndexedResult;
+import org.jax.mgi.indexedtokenmatcher.IndexedTokenMatcherHolder;
+import org.jax.mgi.indexedtokenmatcher.QueryRecorder;
+import org.jax.mgi.indexedtokenmatcher.ResultSink;
+import org.jax.mgi.indexedtokenmatcher.SearchContext;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/* Is: a standalone HTTP autocomplete service over one or more IndexedTokenMatchers
+ * Has: a named IndexedTokenMatcherHolder per index, each loaded from a tab-delimited file (see TabDelimitedSource)
+ * Does: serves these endpoints, all returning JSON streamed straight to the response:
+ * 		GET  /search?index=NAME&q=QUERY[&max=20]	matching results, in priority order
+ * 		POST /batch?index=NAME[&max=20]			one query per line of the request body; results for each
+ * 		GET  /explain?index=NAME&q=QUERY[&max=200]	query tokens, count of results per match type, and the results
+ * 		GET  /complete?index=NAME&q=QUERY[&max=10]	distinct tokens completing the query's last token (if enabled)
+ * 		POST /reload?index=NAME					rebuild the index from its file in the background
+ * 		GET  /health								whether each index is loaded
+ * 		GET  /metrics								request counts and latencies per endpoint, index rebuild stats, heap/GC
+ * 	Given a query log directory, records each index's searches to NAME.qlog there (see QueryRecorder), rolling it
+ * 	over to NAME.qlog.1 when it reaches 64 MB, and replays the most recent of those already recorded against each
+ * 	new matcher before it takes traffic.
+ * Notes: Uses only the JDK's built-in HTTP server.  Requests run on virtual threads when the JVM has them, and on a
+ * 	cached thread pool otherwise.  Binds to localhost unless told otherwise.
+ */
+public class AutocompleteServer {
+	private static String usage = "AutocompleteServer [host=127.0.0.1] [port=8080] [columnar=false] [infix=false] [completions=false] [exact=false] [budget=BYTES] [querylog=DIR] NAME=FILE.tsv ...";
+
+	// names for the match types defined in IndexedResult, indexed by match type
+	private static String[] matchTypeNames = { "none", "exactTerm", "exactSynonym", "beginsTerm", "beginsSynonym",
+		"other", "infix" };
+
+	// most recorded searches to replay when warming up a new matcher
+	private static int warmupLogSize = 10000;
+
+	// size at which a query log is rolled over to NAME.qlog.1, bounding each index's logs to about twice this
+	private static long maxQueryLogBytes = 64L * 1024 * 1024;
+
+	//--- instance variables ---//
+
+	private Map<String,IndexedTokenMatcherHolder<String>> indexes = new LinkedHashMap<String,IndexedTokenMatcherHolder<String>>();
+	private Map<String,QueryRecorder> recorders = new LinkedHashMap<String,QueryRecorder>();
+	private List<Endpoint> endpoints = new ArrayList<Endpoint>();
+	private HttpServer httpServer;
+	private ExecutorService executor;
+	private long startTime = System.currentTimeMillis();
+
+	// Idle search working storage.  Each search borrows a context and returns it afterward, so the pool grows only to
+	// the number of searches running at once (rather than one per thread, which on virtual threads means per request).
+	private ConcurrentLinkedQueue<SearchContext> contexts = new ConcurrentLinkedQueue<SearchContext>();
+
+	//--- public methods ---//
+
+	public static void main(String[] args) throws Exception {
+		String host = "127.0.0.1";
+		int port = 8080;
+		String queryLogDir = null;
+		ITMConfig config = new ITMConfig();
+		Map<String,String> files = new LinkedHashMap<String,String>();
+
+		for (String arg : args) {
+			int eq = arg.indexOf('=');
+			if (eq <= 0) {
+				System.err.println("Usage: " + usage);
+				System.exit(2);
+			}
+			String name = arg.substring(0, eq);
+			String value = arg.substring(eq + 1);
+			if (name.equals("host")) {
+				host = value;
+			} else if (name.equals("port")) {
+				port = Integer.parseInt(value);
+			} else if (setConfigOption(config, name, value)) {
+				// an index setting
+			} else if (name.equals("querylog")) {
+				queryLogDir = value;
+			} else {
+				files.put(name, value);
+			}
+		}
+		if (files.isEmpty()) {
+			System.err.println("No indexes given.  Usage: " + usage);
+			System.exit(2);
+		}
+
+		final AutocompleteServer server = new AutocompleteServer();
+		for (String name : files.keySet()) {
+			IndexedTokenMatcherHolder<String> holder =
+				new IndexedTokenMatcherHolder<String>(new TabDelimitedSource(files.get(name)), false, 1000, config);
+			if (queryLogDir == null) {
+				server.addIndex(name, holder);
+			} else {
+				// warm up with the searches recorded last time, then keep recording (after them, in the same file)
+				File logFile = new File(queryLogDir, name + ".qlog");
+				try {
+					holder.setWarmupLog(QueryRecorder.readTail(logFile.getPath(), warmupLogSize));
+				} catch (IOException e) {
+					// A damaged log only costs us the warm-up.  (Searches can't be recorded after a file that isn't a
+					// query log at all, though, so say so.)
+					System.err.println("Could not read query log for " + name + " (skipping warm-up; move the file aside "
+						+ "if it isn't a query log): " + e.getMessage());
+				}
+				QueryRecorder recorder = new QueryRecorder(logFile.getPath(), 65536, 1000);
+				recorder.setMaxFileBytes(maxQueryLogBytes);
+				server.addIndex(name, holder, recorder);
+			}
+		}
+		server.start(host, port);
+		Runtime.getRuntime().addShutdownHook(new Thread() {
+			public void run() {
+				server.stop();
+			}
+		});
+		System.out.println("Listening on http://" + host + ":" + server.getPort() + "/");
+
+		// load the indexes (the server answers health checks meanwhile, reporting them as not yet loaded)
+		for (String name : files.keySet()) {
+			server.indexes.get(name).rebuildNow();
+			System.out.println("Loaded index " + name + " in " + server.indexes.get(name).getLastBuildMillis() + " ms");
+		}
+	}
+
+	// Serve the given index under 'name'.  Must be called before start().
+	public void addIndex(String name, IndexedTokenMatcherHolder<String> holder) {
+		this.indexes.put(name, holder);
+	}
+
+	// as above, but recording its searches with 'recorder' (which is closed when the server stops)
+	public void addIndex(String name, IndexedTokenMatcherHolder<String> holder, QueryRecorder recorder) {
+		this.indexes.put(name, holder);
+		this.recorders.put(name, recorder);
+		holder.setQueryRecorder(recorder);
+	}
+
+	// Start serving on 'host' and 'port' (0 picks a free port).
+	public void start(String host, int port) throws IOException {
+		this.httpServer = HttpServer.create(new InetSocketAddress(host, port), 0);
+		this.executor = newExecutor();
+		this.httpServer.setExecutor(this.executor);
+
+		this.addEndpoint(new SearchEndpoint());
+		this.addEndpoint(new BatchEndpoint());
+		this.addEndpoint(new ExplainEndpoint());
+		this.addEndpoint(new CompleteEndpoint());
+		this.addEndpoint(new ReloadEndpoint());
+		this.addEndpoint(new HealthEndpoint());
+		this.addEndpoint(new MetricsEndpoint());
+		this.httpServer.start();
+	}
+
+	// port we're listening on
+	public int getPort() {
+		return this.httpServer.getAddress().getPort();
+	}
+
+	public void stop() {
+		this.httpServer.stop(1);
+		this.executor.shutdown();
+		for (IndexedTokenMatcherHolder<String> holder : this.indexes.values()) {
+			holder.shutdown();
+		}
+		for (String name : this.recorders.keySet()) {
+			try {
+				this.recorders.get(name).close();
+			} catch (IOException e) {
+				System.err.println("Could not flush query log for " + name + ": " + e.getMessage());
+			}
+		}
+	}
+
+	//--- package methods ---//
+
+	// If 'name' is one of the index settings in the usage (columnar, infix, completions, exact, budget), apply 'value'
+	// for it to 'config' and return true; otherwise return false.  Shared with QueryLogTool, so it can build the same
+	// index the server did.
+	static boolean setConfigOption(ITMConfig config, String name, String value) {
+		if (name.equals("columnar")) {
+			config.setColumnarStore(Boolean.parseBoolean(value));
+		} else if (name.equals("infix")) {
+			config.setInfixSearch(Boolean.parseBoolean(value));
+		} else if (name.equals("completions")) {
+			config.setTokenCompletions(Boolean.parseBoolean(value));
+		} else if (name.equals("exact")) {
+			config.setExactIndex(Boolean.parseBoolean(value));
+		} else if (name.equals("budget")) {
+			config.setMemoryBudget(Long.parseLong(value));
+		} else {
+			return false;
+		}
+		return true;
+	}
+
+	// parse a URL's raw (still encoded) query string, which may be null, into a map of decoded parameters
+	static Map<String,String> parseParams(String rawQuery) throws IOException {
+		Map<String,String> params = new HashMap<String,String>();
+		if (rawQuery != null) {
+			for (String pair : rawQuery.split("&")) {
+				int eq = pair.indexOf('=');
+				if (eq > 0) {
+					params.put(URLDecoder.decode(pair.substring(0, eq), "UTF-8"), URLDecoder.decode(pair.substring(eq + 1), "UTF-8"));
+				} else if (pair.length() > 0) {
+					params.put(URLDecoder.decode(pair, "UTF-8"), "");
+				}
+			}
+		}
+		return params;
+	}
+
+	//--- private methods ---//
+
+	private void addEndpoint(Endpoint endpoint) {
+		this.endpoints.add(endpoint);
+		this.httpServer.createContext("/" + endpoint.name, endpoint);
+	}
+
+	// Get an executor that runs each request on its own virtual thread, if this JVM has them (looked up reflectively,
+	// as the build doesn't require a JDK that does), or on a cached pool of platform threads.
+	private static ExecutorService newExecutor() {
+		try {
+			Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) factory.invoke(null);
+		} catch (Exception e) {
+			return Executors.newCachedThreadPool();
+		}
+	}
+
+	// borrow a search context from the pool (creating one if none are idle); give it back with returnContext()
+	private SearchContext borrowContext() {
+		SearchContext context = this.contexts.poll();
+		return (context == null) ? new SearchContext() : context;
+	}
+
+	private void returnContext(SearchContext context) {
+		this.contexts.offer(context);
+	}
+
+	// Get the index named by the 'index' parameter, failing the request if it's missing, unknown, or not loaded yet.
+	private IndexedTokenMatcherHolder<String> getIndex(Map<String,String> params) throws RequestException {
+		String name = params.get("index");
+		if ((name == null) && (this.indexes.size() == 1)) {
+			name = this.indexes.keySet().iterator().next();
+		}
+		if (name == null) {
+			throw new RequestException(400, "missing parameter: index");
+		}
+		IndexedTokenMatcherHolder<String> holder = this.indexes.get(name);
+		if (holder == null) {
+			throw new RequestException(404, "unknown index: " + name);
+		}
+		if (holder.get() == null) {
+			throw new RequestException(503, "index not loaded yet: " + name);
+		}
+		return holder;
+	}
+
+	private static String getRequired(Map<String,String> params, String name) throws RequestException {
+		String value = params.get(name);
+		if (value == null) {
+			throw new RequestException(400, "missing parameter: " + name);
+		}
+		return value;
+	}
+
+	private static int getInt(Map<String,String> params, String name, int dflt) throws RequestException {
+		String value = params.get(name);
+		if (value == null) {
+			return dflt;
+		}
+		try {
+			return Integer.parseInt(value);
+		} catch (NumberFormatException e) {
+			throw new RequestException(400, "not an integer: " + name);
+		}
+	}
+
+	private static void requireMethod(HttpExchange exchange, String method) throws RequestException {
+		if (!exchange.getRequestMethod().equalsIgnoreCase(method)) {
+			throw new RequestException(405, "use " + method);
+		}
+	}
+
+	// send the response headers for a streamed JSON body, and return a writer for the body
+	private static JsonWriter startJson(HttpExchange exchange, int status) throws IOException {
+		exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+		exchange.sendResponseHeaders(status, 0);
+		return new JsonWriter(new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(), "UTF-8"), 8192));
+	}
+
+	// Search 'holder' for 'query', writing the results as a JSON array.
+	private void writeResults(JsonWriter json, IndexedTokenMatcherHolder<String> holder, String query, int maxCount,
+			int[] countsByMatchType) throws IOException {
+		JsonResultSink sink = new JsonResultSink(json, countsByMatchType);
+		json.beginArray();
+		// A search that throws may leave the context's working storage dirty, so only one that finishes gives it back.
+		SearchContext context = this.borrowContext();
+		holder.search(query, maxCount, context, sink);
+		this.returnContext(context);
+		if (sink.failure != null) {
+			throw sink.failure;
+		}
+		json.endArray();
+	}
+
+	//--- private inner classes ---//
+
+	// a failed request, with the HTTP status to report
+	private static class RequestException extends Exception {
+		private static final long serialVersionUID = 1L;
+		int status;
+
+		RequestException(int status, String message) {
+			super(message);
+			this.status = status;
+		}
+	}
+
+	// Writes each result as a JSON object as soon as the matcher passes it along: its key, its term, the synonym that
+	// matched (or null if the term did), its match type, and whether the term matched.  The term and synonym are
+	// written as they are held, rather than joined into a display string, so writing a result allocates nothing.
+	// (A ResultSink can't throw an IOException, so the first one is saved for the caller to rethrow.)
+	private static class JsonResultSink implements ResultSink<String> {
+		JsonWriter json;
+		int[] countsByMatchType;		// if not null, incremented for each result's match type
+		IOException failure = null;
+
+		JsonResultSink(JsonWriter json, int[] countsByMatchType) {
+			this.json = json;
+			this.countsByMatchType = countsByMatchType;
+		}
+
+		public void accept(IndexedResult<String> result, int matchType) {
+			if (this.countsByMatchType != null) {
+				this.countsByMatchType[matchType]++;
+			}
+			if (this.failure != null) {
+				return;
+			}
+			try {
+				this.json.beginObject();
+				this.json.name("key").value(result.getRawObject());
+				this.json.name("term").value(result.getIndexedObject().getTerm());
+				this.json.name("synonym").value(result.byTerm() ? null : result.getLowerString());
+				this.json.name("matchType").value(matchTypeNames[matchType]);
+				this.json.name("byTerm").value(result.byTerm());
+				this.json.endObject();
+			} catch (IOException e) {
+				this.failure = e;
+			}
+		}
+	}
+
+	// base class for all endpoints: dispatches to respond(), turns failures into JSON errors, and keeps metrics
+	private abstract class Endpoint implements HttpHandler {
+		String name;
+		AtomicLong requests = new AtomicLong();
+		AtomicLong errors = new AtomicLong();
+		AtomicLong totalNanos = new AtomicLong();
+		AtomicLong maxNanos = new AtomicLong();
+
+		Endpoint(String name) {
+			this.name = name;
+		}
+
+		abstract void respond(HttpExchange exchange, Map<String,String> params) throws IOException, RequestException;
+
+		public void handle(HttpExchange exchange) throws IOException {
+			long start = System.nanoTime();
+			this.requests.incrementAndGet();
+			try {
+				if (!exchange.getRequestURI().getPath().equals("/" + this.name)) {
+					throw new RequestException(404, "no such endpoint: " + exchange.getRequestURI().getPath());
+				}
+				this.respond(exchange, parseParams(exchange.getRequestURI().getRawQuery()));
+			} catch (RequestException e) {
+				this.errors.incrementAndGet();
+				JsonWriter json = startJson(exchange, e.status);
+				json.beginObject().name("error").value(e.getMessage()).endObject();
+				json.close();
+			} catch (IOException e) {
+				// most likely the client went away; nothing more we can send
+				this.errors.incrementAndGet();
+			} catch (RuntimeException e) {
+				this.errors.incrementAndGet();
+				throw e;
+			} finally {
+				exchange.close();
+				long nanos = System.nanoTime() - start;
+				this.totalNanos.addAndGet(nanos);
+				long max = this.maxNanos.get();
+				while ((nanos > max) && !this.maxNanos.compareAndSet(max, nanos)) {
+					max = this.maxNanos.get();
+				}
+			}
+		}
+	}
+
+	private class SearchEndpoint extends Endpoint {
+		SearchEndpoint() {
+			super("search");
+		}
+
+		void respond(HttpExchange exchange, Map<String,String> params) throws IOException, RequestException {
+			requireMethod(exchange, "GET");
+			IndexedTokenMatcherHolder<String> holder = getIndex(params);
+			String query = getRequired(params, "q");
+			int maxCount = getInt(params, "max", 20);
+
+			JsonWriter json = startJson(exchange, 200);
+			json.beginObject();
+			json.name("query").value(query);
+			json.name("results");
+			writeResults(json, holder, query, maxCount, null);
+			json.endObject();
+			json.close();
+		}
+	}
+
+	private class BatchEndpoint extends Endpoint {
+		BatchEndpoint() {
+			super("batch");
+		}
+
+		void respond(HttpExchange exchange, Map<String,String> params) throws IOException, RequestException {
+			requireMethod(exchange, "POST");
+			IndexedTokenMatcherHolder<String> holder = getIndex(params);
+			int maxCount = getInt(params, "max", 20);
+			BufferedReader reader = new BufferedReader(new InputStreamReader(exchange.getRequestBody(), "UTF-8"));
+
+			JsonWriter json = startJson(exchange, 200);
+			json.beginObject();
+			json.name("batch").beginArray();
+			String query;
+			while ((query = reader.readLine()) != null) {
+				if (query.length() == 0) {
+					continue;
+				}
+				json.beginObject();
+				json.name("query").value(query);
+				json.name("results");
+				writeResults(json, holder, query, maxCount, null);
+				json.endObject();
+			}
+			json.endArray();
+			json.endObject();
+			json.close();
+		}
+	}
+
+	private class ExplainEndpoint extends Endpoint {
+		ExplainEndpoint() {
+			super("explain");
+		}
+
+		void respond(HttpExchange exchange, Map<String,String> params) throws IOException, RequestException {
+			requireMethod(exchange, "GET");
+			IndexedTokenMatcherHolder<String> holder = getIndex(params);
+			String query = getRequired(params, "q");
+			int maxCount = getInt(params, "max", 200);
+			int[] countsByMatchType = new int[matchTypeNames.length];
+
+			JsonWriter json = startJson(exchange, 200);
+			json.beginObject();
+			json.name("query").value(query);
+			json.name("lowercase").value(query.toLowerCase());
+			json.name("tokens").beginArray();
+			for (String token : ITMUtils.tokenize(query)) {
+				json.value(token);
+			}
+			json.endArray();
+			json.name("generation").value(holder.getGeneration());
+			json.name("results");
+			writeResults(json, holder, query, maxCount, countsByMatchType);
+			json.name("countsByMatchType").beginObject();
+			for (int matchType = 1; matchType < matchTypeNames.length; matchType++) {
+				json.name(matchTypeNames[matchType]).value(countsByMatchType[matchType]);
+			}
+			json.endObject();
+			json.endObject();
+			json.close();
+		}
+	}
+
+	private class CompleteEndpoint extends Endpoint {
+		CompleteEndpoint() {
+			super("complete");
+		}
+
+		void respond(HttpExchange exchange, Map<String,String> params) throws IOException, RequestException {
+			requireMethod(exchange, "GET");
+			IndexedTokenMatcherHolder<String> holder = getIndex(params);
+			String query = getRequired(params, "q");
+			int maxCount = getInt(params, "max", 10);
+
+			JsonWriter json = startJson(exchange, 200);
+			json.beginObject();
+			json.name("query").value(query);
+			json.name("completions").beginArray();
+			for (String token : holder.completeToken(query, maxCount)) {
+				json.value(token);
+			}
+			json.endArray();
+			json.endObject();
+			json.close();
+		}
+	}
+
+	private class ReloadEndpoint extends Endpoint {
+		ReloadEndpoint() {
+			super("reload");
+		}
+
+		void respond(HttpExchange exchange, Map<String,String> params) throws IOException, RequestException {
+			requireMethod(exchange, "POST");
+			String name = getRequired(params, "index");
+			IndexedTokenMatcherHolder<String> holder = indexes.get(name);
+			if (holder == null) {
+				throw new RequestException(404, "unknown index: " + name);
+			}
+			holder.rebuild();
+
+			JsonWriter json = startJson(exchange, 202);
+			json.beginObject().name("index").value(name).name("status").value("rebuilding").endObject();
+			json.close();
+		}
+	}
+
+	private class HealthEndpoint extends Endpoint {
+		HealthEndpoint() {
+			super("health");
+		}
+
+		void respond(HttpExchange exchange, Map<String,String> params) throws IOException {
+			boolean allLoaded = true;
+			for (IndexedTokenMatcherHolder<String> holder : indexes.values()) {
+				allLoaded = allLoaded && (holder.get() != null);
+			}
+
+			JsonWriter json = startJson(exchange, allLoaded ? 200 : 503);
+			json.beginObject();
+			json.name("status").value(allLoaded ? "ok" : "loading");
+			json.name("indexes").beginObject();
+			for (String name : indexes.keySet()) {
+				json.name(name).value(indexes.get(name).get() != null);
+			}
+			json.endObject();
+			json.endObject();
+			json.close();
+		}
+	}
+
+	private class MetricsEndpoint extends Endpoint {
+		MetricsEndpoint() {
+			super("metrics");
+		}
+
+		void respond(HttpExchange exchange, Map<String,String> params) throws IOException {
+			Runtime runtime = Runtime.getRuntime();
+
+			JsonWriter json = startJson(exchange, 200);
+			json.beginObject();
+			json.name("uptimeMillis").value(System.currentTimeMillis() - startTime);
+
+			json.name("endpoints").beginObject();
+			for (Endpoint endpoint : endpoints) {
+				long requests = endpoint.requests.get();
+				json.name(endpoint.name).beginObject();
+				json.name("requests").value(requests);
+				json.name("errors").value(endpoint.errors.get());
+				json.name("meanMicros").value((requests == 0) ? 0 : endpoint.totalNanos.get() / requests / 1000);
+				json.name("maxMicros").value(endpoint.maxNanos.get() / 1000);
+				json.endObject();
+			}
+			json.endObject();
+
+			json.name("indexes").beginObject();
+			for (String name : indexes.keySet()) {
+				IndexedTokenMatcherHolder<String> holder = indexes.get(name);
+				json.name(name).beginObject();
+				json.name("generation").value(holder.getGeneration());
+				json.name("lastBuildMillis").value(holder.getLastBuildMillis());
+				json.name("lastWarmupMillis").value(holder.getLastWarmupMillis());
+				json.name("lastSwapNanos").value(holder.getLastSwapNanos());
+				json.name("lastHeapOverlapBytes").value(holder.getLastHeapOverlapBytes());
+				json.name("lastHeapGrowthBytes").value(holder.getLastHeapGrowthBytes());
+				QueryRecorder recorder = recorders.get(name);
+				if (recorder != null) {
+					json.name("queriesRecorded").value(recorder.getRecordedCount());
+					json.name("queriesDropped").value(recorder.getDroppedCount());
+				}
+				json.endObject();
+			}
+			json.endObject();
+
+			json.name("heapUsedBytes").value(runtime.totalMemory() - runtime.freeMemory());
+			json.name("heapMaxBytes").value(runtime.maxMemory());
+			json.name("gc").beginObject();
+			for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+				json.name(gc.getName()).beginObject();
+				json.name("count").value(gc.getCollectionCount());
+				json.name("millis").value(gc.getCollectionTime());
+				json.endObject();
+			}
+			json.endObject();
+			json.endObject();
+			json.close();
+		}
+	}
+}
@@ -0,0 +1,130 @@
+package org.jax.mgi.indexedtokenmatcher.server;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/* Is: a minimal streaming JSON writer
+ * Does: writes objects, arrays, names, and values straight to a Writer as they are produced, escaping Strings
+ * 	character by character, so a response never has to be assembled in memory first.
+ * Notes: Does no validation of nesting; callers are expected to pair begin/end calls and to give each object value a
+ * 	name.  Not thread-safe.
+ */
+public class JsonWriter {
+	//--- instance variables ---//
+
+	private Writer out;
+	private boolean needComma = false;		// true if the next value or name must be preceded by a comma
+
+	//--- constructors ---//
+
+	public JsonWriter(Writer out) {
+		this.out = out;
+	}
+
+	//--- public methods ---//
+
+	public JsonWriter beginObject() throws IOException {
+		this.separate();
+		this.out.write('{');
+		this.needComma = false;
+		return this;
+	}
+
+	public JsonWriter endObject() throws IOException {
+		this.out.write('}');
+		this.needComma = true;
+		return this;
+	}
+
+	public JsonWriter beginArray() throws IOException {
+		this.separate();
+		this.out.write('[');
+		this.needComma = false;
+		return this;
+	}
+
+	public JsonWriter endArray() throws IOException {
+		this.out.write(']');
+		this.needComma = true;
+		return this;
+	}
+
+	// write the name for the next value in an object
+	public JsonWriter name(String name) throws IOException {
+		this.separate();
+		this.string(name);
+		this.out.write(':');
+		this.needComma = false;
+		return this;
+	}
+
+	// write a String value (or null)
+	public JsonWriter value(String value) throws IOException {
+		this.separate();
+		if (value == null) {
+			this.out.write("null");
+		} else {
+			this.string(value);
+		}
+		this.needComma = true;
+		return this;
+	}
+
+	public JsonWriter value(long value) throws IOException {
+		this.separate();
+		this.out.write(Long.toString(value));
+		this.needComma = true;
+		return this;
+	}
+
+	public JsonWriter value(boolean value) throws IOException {
+		this.separate();
+		this.out.write(value ? "true" : "false");
+		this.needComma = true;
+		return this;
+	}
+
+	public void flush() throws IOException {
+		this.out.flush();
+	}
+
+	public void close() throws IOException {
+		this.out.close();
+	}
+
+	//--- private methods ---//
+
+	private void separate() throws IOException {
+		if (this.needComma) {
+			this.out.write(',');
+		}
+	}
+
+	// write 's' as a quoted, escaped JSON string
+	private void string(String s) throws IOException {
+		this.out.write('"');
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if ((c == '"') || (c == '\\')) {
+				this.out.write('\\');
+				this.out.write(c);
+			} else if (c == '\n') {
+				this.out.write("\\n");
+			} else if (c == '\r') {
+				this.out.write("\\r");
+			} else if (c == '\t') {
+				this.out.write("\\t");
+			} else if ((c < 0x20) || (c == '\u2028') || (c == '\u2029')) {
+				this.out.write("\\u");
+				String hex = Integer.toHexString(c);
+				for (int pad = hex.length(); pad < 4; pad++) {
+					this.out.write('0');
+				}
+				this.out.write(hex);
+			} else {
+				this.out.write(c);
+			}
+		}
+		this.out.write('"');
+	}
+}
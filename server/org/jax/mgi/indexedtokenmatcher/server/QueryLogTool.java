@@ -0,0 +1,86 @@
+package org.jax.mgi.indexedtokenmatcher.server;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jax.mgi.indexedtokenmatcher.ITMConfig;
+import org.jax.mgi.indexedtokenmatcher.IndexedTokenMatcher;
+import org.jax.mgi.indexedtokenmatcher.QueryLogEntry;
+import org.jax.mgi.indexedtokenmatcher.QueryRecorder;
+import org.jax.mgi.indexedtokenmatcher.QueryReplay;
+
+/* Is: a command-line tool for query logs written by a QueryRecorder (eg- by the AutocompleteServer's querylog option)
+ * Does: one of:
+ * 		dump LOG						print each entry: timestamp, latency (us), max count, result count, query
+ * 		replay INDEX.tsv LOG			build a matcher from the file and replay the log against it, comparing
+ * 										latencies with those recorded (the first pass warms up; the second is timed)
+ * 		diff OLD.tsv NEW.tsv LOG [max]	replay the log against matchers built from both files, and print each search
+ * 										whose results differ (up to 'max', default 100); exits with 1 if any do
+ * 	Matchers are built with the same index settings the AutocompleteServer takes (columnar=, infix=, completions=,
+ * 	exact=, budget=), which may come anywhere among the arguments; give the ones the server ran with, so the logged
+ * 	searches are replayed against the same kind of index that served them.
+ */
+public class QueryLogTool {
+	private static String usage = "QueryLogTool [columnar=false] [infix=false] [completions=false] [exact=false] "
+		+ "[budget=BYTES] dump LOG | replay INDEX.tsv LOG | diff OLD.tsv NEW.tsv LOG [max]";
+
+	//--- public methods ---//
+
+	public static void main(String[] args) throws Exception {
+		ITMConfig config = new ITMConfig();
+		List<String> positional = new ArrayList<String>();
+		for (String arg : args) {
+			int eq = arg.indexOf('=');
+			if ((eq <= 0) || !AutocompleteServer.setConfigOption(config, arg.substring(0, eq), arg.substring(eq + 1))) {
+				positional.add(arg);
+			}
+		}
+		args = positional.toArray(new String[positional.size()]);
+
+		if ((args.length == 2) && args[0].equals("dump")) {
+			for (QueryLogEntry entry : QueryRecorder.read(args[1])) {
+				System.out.println(entry.getTimestamp() + "\t" + (entry.getLatencyNanos() / 1000) + "\t"
+					+ entry.getMaxCount() + "\t" + entry.getResultCount() + "\t" + entry.getQuery());
+			}
+
+		} else if ((args.length == 3) && args[0].equals("replay")) {
+			List<QueryLogEntry> entries = QueryRecorder.read(args[2]);
+			IndexedTokenMatcher<String> matcher = build(args[1], config);
+			QueryReplay.replay(matcher, entries);
+			long[] latencies = QueryReplay.replay(matcher, entries);
+
+			long[] recorded = new long[entries.size()];
+			for (int i = 0; i < recorded.length; i++) {
+				recorded[i] = entries.get(i).getLatencyNanos();
+			}
+			System.out.println("Replayed " + entries.size() + " searches");
+			System.out.println(" - recorded p50 " + (QueryReplay.percentile(recorded, 50) / 1000) + " us, p99 "
+				+ (QueryReplay.percentile(recorded, 99) / 1000) + " us");
+			System.out.println(" - replayed p50 " + (QueryReplay.percentile(latencies, 50) / 1000) + " us, p99 "
+				+ (QueryReplay.percentile(latencies, 99) / 1000) + " us");
+
+		} else if (((args.length == 4) || (args.length == 5)) && args[0].equals("diff")) {
+			List<QueryLogEntry> entries = QueryRecorder.read(args[3]);
+			int maxDifferences = (args.length == 5) ? Integer.parseInt(args[4]) : 100;
+			List<String> differences = QueryReplay.diff(build(args[1], config), build(args[2], config), entries,
+				maxDifferences);
+			for (String difference : differences) {
+				System.out.println(difference);
+			}
+			System.out.println(differences.size() + " searches with different results"
+				+ ((differences.size() >= maxDifferences) ? " (stopped at the maximum)" : ""));
+			System.exit(differences.isEmpty() ? 0 : 1);
+
+		} else {
+			System.err.println("Usage: " + usage);
+			System.exit(2);
+		}
+	}
+
+	//--- private methods ---//
+
+	// build a matcher from the given tab-delimited file, with the given settings
+	private static IndexedTokenMatcher<String> build(String path, ITMConfig config) throws Exception {
+		return new IndexedTokenMatcher<String>(new TabDelimitedSource(path).call(), false, config);
+	}
+}
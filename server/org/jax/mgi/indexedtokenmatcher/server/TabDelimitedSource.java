@@ -0,0 +1,98 @@
+package org.jax.mgi.indexedtokenmatcher.server;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import org.jax.mgi.indexedtokenmatcher.IndexedObject;
+
+/* Is: a source of IndexedObjects read from a tab-delimited file, for use with an IndexedTokenMatcherHolder
+ * Notes: Each line has a unique key, a term, and (optionally) synonyms separated by '|':
+ * 		MA:0000001<tab>heart<tab>cor|cardiac muscle
+ * 	Blank lines and lines starting with '#' are skipped.  The file is re-read on each call, so rebuilding the holder
+ * 	picks up any changes.  The raw object for each entry is its unique key.
+ */
+public class TabDelimitedSource implements Callable<List<IndexedObject<String>>> {
+	//--- instance variables ---//
+
+	private String path;
+
+	//--- constructors ---//
+
+	public TabDelimitedSource(String path) {
+		this.path = path;
+	}
+
+	//--- public methods ---//
+
+	public List<IndexedObject<String>> call() throws IOException {
+		List<IndexedObject<String>> objects = new ArrayList<IndexedObject<String>>();
+		BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(this.path), "UTF-8"));
+		try {
+			String line;
+			int lineNumber = 0;
+			while ((line = reader.readLine()) != null) {
+				lineNumber++;
+				if ((line.trim().length() == 0) || line.startsWith("#")) {
+					continue;
+				}
+				String[] fields = line.split("\t", -1);
+				if (fields.length < 2) {
+					throw new IOException(this.path + " line " + lineNumber + ": expected a key and a term");
+				}
+				List<String> synonyms = new ArrayList<String>();
+				if ((fields.length > 2) && (fields[2].length() > 0)) {
+					for (String synonym : fields[2].split("\\|")) {
+						if (synonym.length() > 0) {
+							synonyms.add(synonym);
+						}
+					}
+				}
+				objects.add(new Entry(fields[0], fields[1], synonyms));
+			}
+		} finally {
+			reader.close();
+		}
+		return objects;
+	}
+
+	//--- private inner classes ---//
+
+	// one line of the file; sorting falls back on IndexedResult's default comparator (term, then key)
+	private static class Entry implements IndexedObject<String> {
+		String key;
+		String term;
+		List<String> synonyms;
+
+		Entry(String key, String term, List<String> synonyms) {
+			this.key = key;
+			this.term = term;
+			this.synonyms = synonyms;
+		}
+
+		public Comparator<IndexedObject<String>> getComparator() {
+			return null;
+		}
+
+		public String getUniqueKey() {
+			return this.key;
+		}
+
+		public String getTerm() {
+			return this.term;
+		}
+
+		public List<String> getSynonyms() {
+			return this.synonyms;
+		}
+
+		public String getObject() {
+			return this.key;
+		}
+	}
+}
@@ -0,0 +1,177 @@
+package org.jax.mgi.indexedtokenmatcher;
+
+import java.util.List;
+
+/* Is: a column-oriented copy of the searchable strings in an IndexedTokenMatcher's 'searchableTerms'
+ * Has: the lowercase strings concatenated into one char array (with an offset table), the tokens concatenated
+ * 	into one byte array (with offset tables), the leading bytes of each token packed into a long, and a bitset
+ * 	flagging which entries are terms (vs. synonyms).
+ * Does: computes the same match types as IndexedResult.getMatchType(), but by walking flat primitive arrays
+ * 	rather than dereferencing an IndexedResult, its token List, each token String, and each String's backing array.
+ * Notes: Tokens only ever contain [a-z0-9] (see ITMUtils.tokenize), so one byte per character is enough.  The
+ * 	first eight bytes of each token are packed big-endian into a long, so checking whether a query token is a
+ * 	prefix of a stored token takes a single masked comparison for query tokens of up to eight characters.
+ * 	Entries are addressed by their index in 'searchableTerms', so the store must be built after sorting.
+ */
+public class ColumnarEntryStore {
+	//--- constants ---//
+
+	// number of leading token bytes packed into each long in 'tokenLeads'
+	public static final int LEAD_BYTES = 8;
+
+	//--- instance variables ---//
+
+	private int entryCount;
+
+	private char[] text;			// lowercase strings of all entries, concatenated
+	private int[] textOffsets;		// entry i's lowercase string is text[textOffsets[i]] to text[textOffsets[i+1]]
+
+	private byte[] tokenBytes;		// all tokens of all entries, concatenated
+	private int[] tokenOffsets;		// token j is tokenBytes[tokenOffsets[j]] to tokenBytes[tokenOffsets[j+1]]
+	private long[] tokenLeads;		// first LEAD_BYTES bytes of token j, packed big-endian and zero-padded
+	private int[] entryTokens;		// entry i's tokens are tokens entryTokens[i] to entryTokens[i+1]
+
+	private long[] termFlags;		// bit i is set if entry i is a term (name) rather than a synonym
+
+	//--- constructors ---//
+
+	public <T> ColumnarEntryStore(List<IndexedResult<T>> searchableTerms) {
+		this.entryCount = searchableTerms.size();
+
+		// First pass: size the columns.
+		int textLength = 0;
+		int tokenCount = 0;
+		int tokenLength = 0;
+		for (IndexedResult<T> indexedResult : searchableTerms) {
+			textLength = textLength + indexedResult.getLowerString().length();
+			for (String token : indexedResult.getTokens()) {
+				tokenCount++;
+				tokenLength = tokenLength + token.length();
+			}
+		}
+
+		this.text = new char[textLength];
+		this.textOffsets = new int[this.entryCount + 1];
+		this.tokenBytes = new byte[tokenLength];
+		this.tokenOffsets = new int[tokenCount + 1];
+		this.tokenLeads = new long[tokenCount];
+		this.entryTokens = new int[this.entryCount + 1];
+		this.termFlags = new long[(this.entryCount + 63) >>> 6];
+
+		// Second pass: fill them.
+		int textPos = 0;
+		int tokenPos = 0;
+		int tokenIndex = 0;
+		for (int i = 0; i < this.entryCount; i++) {
+			IndexedResult<T> indexedResult = searchableTerms.get(i);
+
+			String lower = indexedResult.getLowerString();
+			lower.getChars(0, lower.length(), this.text, textPos);
+			this.textOffsets[i] = textPos;
+			textPos = textPos + lower.length();
+
+			this.entryTokens[i] = tokenIndex;
+			for (String token : indexedResult.getTokens()) {
+				this.tokenOffsets[tokenIndex] = tokenPos;
+				for (int c = 0; c < token.length(); c++) {
+					this.tokenBytes[tokenPos++] = (byte) token.charAt(c);
+				}
+				this.tokenLeads[tokenIndex] = PreparedQuery.packLead(token);
+				tokenIndex++;
+			}
+
+			if (indexedResult.byTerm()) {
+				this.termFlags[i >>> 6] |= (1L << i);
+			}
+		}
+		this.textOffsets[this.entryCount] = textPos;
+		this.entryTokens[this.entryCount] = tokenIndex;
+		this.tokenOffsets[tokenCount] = tokenPos;
+	}
+
+	//--- public methods ---//
+
+	// number of entries in the store
+	public int size() {
+		return this.entryCount;
+	}
+
+	// estimated bytes of heap retained by this store (see MemoryReport)
+	public long getMemorySize() {
+		return MemoryReport.object(4 + (7 * MemoryReport.REFERENCE))
+			+ MemoryReport.charArray(this.text.length) + MemoryReport.intArray(this.textOffsets.length)
+			+ MemoryReport.byteArray(this.tokenBytes.length) + MemoryReport.intArray(this.tokenOffsets.length)
+			+ MemoryReport.longArray(this.tokenLeads.length) + MemoryReport.intArray(this.entryTokens.length)
+			+ MemoryReport.longArray(this.termFlags.length);
+	}
+
+	// returns true if the entry at 'index' represents a term (name), false if it represents a synonym
+	public boolean isTerm(int index) {
+		return (this.termFlags[index >>> 6] & (1L << index)) != 0;
+	}
+
+	// Compares the prepared query with the entry at 'index', returning the same flag that IndexedResult.getMatchType()
+	// would return for the IndexedResult at that position in 'searchableTerms'.
+	public int getMatchType(int index, PreparedQuery query) {
+		int exactFlag = IndexedResult.EXACT_TERM_MATCH;
+		int beginsFlag = IndexedResult.BEGINS_TERM_MATCH;
+		if (!this.isTerm(index)) {
+			exactFlag = IndexedResult.EXACT_SYNONYM_MATCH;
+			beginsFlag = IndexedResult.BEGINS_SYNONYM_MATCH;
+		}
+
+		// Is the query string a prefix to this string?  If so, is it also an exact match?
+		int start = this.textOffsets[index];
+		int length = this.textOffsets[index + 1] - start;
+		if (query.lowerLength <= length) {
+			char[] q = query.lower;
+			int i = 0;
+			while ((i < query.lowerLength) && (this.text[start + i] == q[i])) {
+				i++;
+			}
+			if (i == query.lowerLength) {
+				return (length == query.lowerLength) ? exactFlag : beginsFlag;
+			}
+		}
+
+		// Are all the query tokens prefixes to the tokens for this string?
+		int firstToken = this.entryTokens[index];
+		int lastToken = this.entryTokens[index + 1];
+		for (int qt = 0; qt < query.tokenCount; qt++) {
+			long lead = query.leads[qt];
+			long mask = query.masks[qt];
+			boolean found = false;
+			for (int t = firstToken; t < lastToken; t++) {
+				if ((this.tokenLeads[t] & mask) == lead) {
+					if ((query.tokenLengths[qt] <= LEAD_BYTES) || this.tailMatches(t, query, qt)) {
+						found = true;
+						break;
+					}
+				}
+			}
+			if (!found) {
+				return IndexedResult.NO_MATCH;
+			}
+		}
+		return IndexedResult.OTHER_MATCH;
+	}
+
+	//--- private methods ---//
+
+	// For a query token longer than LEAD_BYTES whose leading bytes already matched token 't', check the rest.
+	private boolean tailMatches(int t, PreparedQuery query, int qt) {
+		int tokenStart = this.tokenOffsets[t];
+		int tokenLength = this.tokenOffsets[t + 1] - tokenStart;
+		int queryLength = query.tokenLengths[qt];
+		if (queryLength > tokenLength) {
+			return false;
+		}
+		int queryStart = query.tokenStarts[qt];
+		for (int i = LEAD_BYTES; i < queryLength; i++) {
+			if (this.tokenBytes[tokenStart + i] != query.tokenBytes[queryStart + i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
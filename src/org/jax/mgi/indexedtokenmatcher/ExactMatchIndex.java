@@ -0,0 +1,203 @@
+package org.jax.mgi.indexedtokenmatcher;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/* Is: a hash index from a normalized string to the entries of an IndexedTokenMatcher's 'searchableTerms' that have it
+ * Has: the distinct keys, the entries for each (as one flat array, grouped by key), and an open-addressed hash table
+ * 	from key to group
+ * Does: finds the entries for a key in constant time, given the key as a String, as characters, or as the tokens of
+ * 	a PreparedQuery (joined by single spaces), allocating nothing.  The IndexedTokenMatcher keeps one keyed by lowercase
+ * 	string (which gives the exact term and synonym matches for a query) and one keyed by token sequence.
+ * Notes: Within a group, entries for terms come before those for synonyms, each in 'searchableTerms' order, which is
+ * 	the order search() returns exact matches in.  Entries are addressed by their index in 'searchableTerms', so the
+ * 	index must be built after sorting.
+ */
+public class ExactMatchIndex {
+	//--- instance variables ---//
+
+	private String[] keys;			// key of each group
+	private int[] groupStarts;		// group g's entries are entries[groupStarts[g]] up to entries[groupStarts[g + 1]]
+	private int[] entries;			// indexes into 'searchableTerms', grouped by key
+	private int[] table;			// hash table of group numbers plus one (0 marks an empty slot); size is a power of 2
+
+	//--- constructors ---//
+
+	// 'entryKeys' has the key for each entry in 'searchableTerms' (or null to leave that entry out), and 'isTerm'
+	// whether each entry is a term (rather than a synonym).
+	public ExactMatchIndex(String[] entryKeys, boolean[] isTerm) {
+		// number the distinct keys in order of first appearance, and count the entries for each
+		Map<String,Integer> groupOf = new HashMap<String,Integer>();
+		int[] groupOfEntry = new int[entryKeys.length];
+		int[] sizes = new int[16];
+		int entryCount = 0;
+		for (int i = 0; i < entryKeys.length; i++) {
+			if (entryKeys[i] == null) {
+				groupOfEntry[i] = -1;
+				continue;
+			}
+			Integer group = groupOf.get(entryKeys[i]);
+			if (group == null) {
+				group = groupOf.size();
+				groupOf.put(entryKeys[i], group);
+				if (group == sizes.length) {
+					sizes = Arrays.copyOf(sizes, sizes.length * 2);
+				}
+			}
+			groupOfEntry[i] = group;
+			sizes[group]++;
+			entryCount++;
+		}
+
+		int groupCount = groupOf.size();
+		this.keys = new String[groupCount];
+		this.groupStarts = new int[groupCount + 1];
+		for (int g = 0; g < groupCount; g++) {
+			this.groupStarts[g + 1] = this.groupStarts[g] + sizes[g];
+		}
+
+		// fill each group with its terms, then its synonyms
+		this.entries = new int[entryCount];
+		int[] next = new int[groupCount];
+		System.arraycopy(this.groupStarts, 0, next, 0, groupCount);
+		for (int pass = 0; pass < 2; pass++) {
+			boolean terms = (pass == 0);
+			for (int i = 0; i < entryKeys.length; i++) {
+				int group = groupOfEntry[i];
+				if ((group >= 0) && (isTerm[i] == terms)) {
+					this.keys[group] = entryKeys[i];
+					this.entries[next[group]++] = i;
+				}
+			}
+		}
+
+		// keep the table at most half full, so probe sequences stay short
+		int tableSize = 2;
+		while (tableSize < groupCount * 2) {
+			tableSize = tableSize * 2;
+		}
+		this.table = new int[tableSize];
+		for (int g = 0; g < groupCount; g++) {
+			int slot = spread(this.keys[g].hashCode()) & (tableSize - 1);
+			while (this.table[slot] != 0) {
+				slot = (slot + 1) & (tableSize - 1);
+			}
+			this.table[slot] = g + 1;
+		}
+	}
+
+	//--- public methods ---//
+
+	// get the group for 'key', or -1 if no entries have it
+	public int find(String key) {
+		int mask = this.table.length - 1;
+		for (int slot = spread(key.hashCode()) & mask; this.table[slot] != 0; slot = (slot + 1) & mask) {
+			int group = this.table[slot] - 1;
+			if (this.keys[group].equals(key)) {
+				return group;
+			}
+		}
+		return -1;
+	}
+
+	// get the group for the key made of the first 'length' characters of 'chars', or -1 if no entries have it
+	public int find(char[] chars, int length) {
+		int hash = 0;
+		for (int i = 0; i < length; i++) {
+			hash = (31 * hash) + chars[i];
+		}
+		int mask = this.table.length - 1;
+		for (int slot = spread(hash) & mask; this.table[slot] != 0; slot = (slot + 1) & mask) {
+			int group = this.table[slot] - 1;
+			String key = this.keys[group];
+			if (key.length() == length) {
+				int i = 0;
+				while ((i < length) && (key.charAt(i) == chars[i])) {
+					i++;
+				}
+				if (i == length) {
+					return group;
+				}
+			}
+		}
+		return -1;
+	}
+
+	// get the group for the key made of the prepared query's tokens joined by single spaces, or -1 if no entries
+	// have it
+	public int findTokens(PreparedQuery query) {
+		int hash = 0;
+		int length = -1;
+		for (int t = 0; t < query.tokenCount; t++) {
+			if (t > 0) {
+				hash = (31 * hash) + ' ';
+			}
+			int start = query.tokenStarts[t];
+			for (int i = 0; i < query.tokenLengths[t]; i++) {
+				hash = (31 * hash) + (char) query.tokenBytes[start + i];
+			}
+			length = length + 1 + query.tokenLengths[t];
+		}
+
+		int mask = this.table.length - 1;
+		for (int slot = spread(hash) & mask; this.table[slot] != 0; slot = (slot + 1) & mask) {
+			int group = this.table[slot] - 1;
+			String key = this.keys[group];
+			if ((key.length() == length) && sameTokens(key, query)) {
+				return group;
+			}
+		}
+		return -1;
+	}
+
+	// number of entries in the given group
+	public int getSize(int group) {
+		return this.groupStarts[group + 1] - this.groupStarts[group];
+	}
+
+	// index (in 'searchableTerms') of the i-th entry in the given group
+	public int getEntry(int group, int i) {
+		return this.entries[this.groupStarts[group] + i];
+	}
+
+	//--- package methods ---//
+
+	// estimated bytes of heap retained by this index (see MemoryReport); keys already counted by the 'report' (eg- as
+	// the lowercase strings of 'searchableTerms') are not counted again
+	long getMemorySize(MemoryReport report) {
+		long bytes = MemoryReport.object(4 * MemoryReport.REFERENCE) + MemoryReport.referenceArray(this.keys.length)
+			+ MemoryReport.intArray(this.groupStarts.length) + MemoryReport.intArray(this.entries.length)
+			+ MemoryReport.intArray(this.table.length);
+		for (String key : this.keys) {
+			bytes = bytes + report.string(key);
+		}
+		return bytes;
+	}
+
+	//--- private methods ---//
+
+	// mix the high bits of a String hash into the low ones, which pick the slot
+	private static int spread(int hash) {
+		return hash ^ (hash >>> 16);
+	}
+
+	// true if 'key' (already known to be the right length) is the query's tokens joined by single spaces
+	private static boolean sameTokens(String key, PreparedQuery query) {
+		int pos = 0;
+		for (int t = 0; t < query.tokenCount; t++) {
+			if (t > 0) {
+				if (key.charAt(pos++) != ' ') {
+					return false;
+				}
+			}
+			int start = query.tokenStarts[t];
+			for (int i = 0; i < query.tokenLengths[t]; i++) {
+				if (key.charAt(pos++) != (char) query.tokenBytes[start + i]) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+}
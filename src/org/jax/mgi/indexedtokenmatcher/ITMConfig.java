@@ -0,0 +1,99 @@
+package org.jax.mgi.indexedtokenmatcher;
+
+/* Is: a set of optional settings used when building an IndexedTokenMatcher
+ * Notes: The defaults reproduce the original behavior, so a default ITMConfig is equivalent to not passing one.
+ * 	Settings are read once, while the IndexedTokenMatcher builds its indexes; changing them afterward has no
+ * 	effect on an existing matcher.
+ */
+public class ITMConfig {
+	//--- instance variables ---//
+
+	// If true, also copy the searchable strings into a ColumnarEntryStore and use it when scanning candidates.  This
+	// costs extra memory (roughly the size of the lowercase strings and their tokens again) but avoids chasing
+	// pointers through each IndexedResult during a search.
+	private boolean columnarStore = false;
+
+	// If positive, the number of bytes the matcher's indexes should fit in (as estimated by a MemoryReport).  When
+	// the estimate is over budget, the matcher falls back on cheaper representations, one step at a time, until it
+	// fits: releasing 'indexedKeys', keeping postings only as packed int arrays (dropping the boxed 'keystone' and
+	// 'termCount' maps), dropping the precomputed short-prefix lists in 'prefixes', dropping the columnar store, and
+	// dropping the exact-match indexes.
+	// Search results are the same either way.
+	private long memoryBudget = 0;
+
+	// If true, also build a SuffixArrayIndex so searches can find entries that contain the query string anywhere (eg-
+	// "blast" finds "trophoblast").  These come back after all other matches, with match type INFIX_MATCH.  Costs
+	// about six bytes per character of the searchable strings.
+	private boolean infixSearch = false;
+
+	// Queries shorter than this are not used for infix matching, as very short strings are found inside most entries.
+	private int infixMinLength = 3;
+
+	// If true, also precompute TokenCompletions, so completeToken() can suggest the distinct tokens that finish what
+	// the user is typing (eg- "theiler" for "theil").  'tokenCompletionCount' is the most suggestions kept per prefix.
+	private boolean tokenCompletions = false;
+	private int tokenCompletionCount = 10;
+
+	// If true, also build hash indexes from each lowercase term/synonym (and from each one's token sequence) to the
+	// entries that have it.  Exact matches then come from a single lookup, and a search whose 'maxCount' is covered
+	// by the exact matches skips scanning candidates altogether.  Also used by searchExact().
+	private boolean exactIndex = false;
+
+	//--- public methods ---//
+
+	public boolean useColumnarStore() {
+		return this.columnarStore;
+	}
+
+	public void setColumnarStore(boolean columnarStore) {
+		this.columnarStore = columnarStore;
+	}
+
+	public long getMemoryBudget() {
+		return this.memoryBudget;
+	}
+
+	public void setMemoryBudget(long memoryBudget) {
+		this.memoryBudget = memoryBudget;
+	}
+
+	public boolean useInfixSearch() {
+		return this.infixSearch;
+	}
+
+	public void setInfixSearch(boolean infixSearch) {
+		this.infixSearch = infixSearch;
+	}
+
+	public int getInfixMinLength() {
+		return this.infixMinLength;
+	}
+
+	public void setInfixMinLength(int infixMinLength) {
+		this.infixMinLength = infixMinLength;
+	}
+
+	public boolean useTokenCompletions() {
+		return this.tokenCompletions;
+	}
+
+	public void setTokenCompletions(boolean tokenCompletions) {
+		this.tokenCompletions = tokenCompletions;
+	}
+
+	public int getTokenCompletionCount() {
+		return this.tokenCompletionCount;
+	}
+
+	public void setTokenCompletionCount(int tokenCompletionCount) {
+		this.tokenCompletionCount = tokenCompletionCount;
+	}
+
+	public boolean useExactIndex() {
+		return this.exactIndex;
+	}
+
+	public void setExactIndex(boolean exactIndex) {
+		this.exactIndex = exactIndex;
+	}
+}
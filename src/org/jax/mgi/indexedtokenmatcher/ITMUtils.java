@@ -4,6 +4,12 @@ import java.util.Arrays;
 import java.util.List;
 
 public class ITMUtils {
+	// Token prefixes (of up to three characters from [a-z0-9]) can be encoded as base-37 integers, using digit 0 for
+	// "no character here".  All prefixes extending a given 1- or 2-character prefix then have codes in one contiguous
+	// range following it (see prefixCodeSpan).
+	public static final int PREFIX_RADIX = 37;
+	public static final int PREFIX_CODES = PREFIX_RADIX * PREFIX_RADIX * PREFIX_RADIX;
+
 	/* Tokenize the given string for searching by included words.  The string is converted to lowercase and split
 	 * on non-alphanumeric characters.
 	 */
@@ -14,4 +20,42 @@ public class ITMUtils {
 
 		return Arrays.asList(tokenArray);
 	}
-}
\ No newline at end of file
+
+	/* Encode the given 1- to 3-character token prefix as an integer in [0, PREFIX_CODES).  Returns -1 for an empty
+	 * or longer prefix.
+	 */
+	public static int prefixCode(String prefix) {
+		int length = prefix.length();
+		if ((length == 0) || (length > 3)) {
+			return -1;
+		}
+		int code = 0;
+		for (int i = 0; i < 3; i++) {
+			code = code * PREFIX_RADIX;
+			if (i < length) {
+				code = code + prefixDigit(prefix.charAt(i));
+			}
+		}
+		return code;
+	}
+
+	/* Get the number of consecutive codes, starting at the code for a prefix of the given length, that belong to that
+	 * prefix or to longer prefixes extending it.
+	 */
+	public static int prefixCodeSpan(int prefixLength) {
+		if (prefixLength == 1) {
+			return PREFIX_RADIX * PREFIX_RADIX;
+		} else if (prefixLength == 2) {
+			return PREFIX_RADIX;
+		}
+		return 1;
+	}
+
+	// digit for a single token character: 1-26 for a-z, 27-36 for 0-9
+	static int prefixDigit(char c) {
+		if ((c >= 'a') && (c <= 'z')) {
+			return c - 'a' + 1;
+		}
+		return c - '0' + 27;
+	}
+}
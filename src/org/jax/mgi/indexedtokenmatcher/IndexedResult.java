@@ -19,6 +19,7 @@ public class IndexedResult<T> {
 	public static int BEGINS_TERM_MATCH = 3;	// Search string is a begins match for this ACTerm.
 	public static int BEGINS_SYNONYM_MATCH = 4;	// Search string is a begins match for a synonym of this ACTerm.
 	public static int OTHER_MATCH = 5;			// Search string is matches this ACTerm otherwise.
+	public static int INFIX_MATCH = 6;			// Search string is found inside this ACTerm (only with infix search enabled).
 	
 	//--- instance variables ---//
 	
@@ -43,6 +44,11 @@ public class IndexedResult<T> {
 		return this.tokens;
 	}
 	
+	// Get the lowercase version of the searchable String (the term or synonym) for this result.
+	public String getLowerString() {
+		return this.lowerString;
+	}
+	
 	/* Return a String that represents this term for a pick list.
 	 * Format for a term: "term"
 	 * Format for a synonym: "term (synonym)"
@@ -112,6 +118,44 @@ public class IndexedResult<T> {
 		return OTHER_MATCH;
 	}
 	
+	// Compares the prepared query with this term or synonym, returning the same flag as the other getMatchType()
+	// methods.  This version allocates nothing, for use on the zero-garbage search path.
+	public int getMatchType(PreparedQuery query) {
+		int exactFlag = EXACT_TERM_MATCH;
+		int beginsFlag = BEGINS_TERM_MATCH;
+		if (!this.isTerm) {
+			exactFlag = EXACT_SYNONYM_MATCH;
+			beginsFlag = BEGINS_SYNONYM_MATCH;
+		}
+
+		// Is the query string a prefix to this string?  If so, is it also an exact match?
+		int length = this.lowerString.length();
+		if (query.lowerLength <= length) {
+			int i = 0;
+			while ((i < query.lowerLength) && (this.lowerString.charAt(i) == query.lower[i])) {
+				i++;
+			}
+			if (i == query.lowerLength) {
+				return (length == query.lowerLength) ? exactFlag : beginsFlag;
+			}
+		}
+
+		// Are all the query tokens prefixes to the tokens for this string?  (Indexed loops avoid an Iterator.)
+		for (int qt = 0; qt < query.tokenCount; qt++) {
+			boolean found = false;
+			for (int t = 0; t < this.tokens.size(); t++) {
+				if (startsWith(this.tokens.get(t), query, qt)) {
+					found = true;
+					break;
+				}
+			}
+			if (!found) {
+				return NO_MATCH;
+			}
+		}
+		return OTHER_MATCH;
+	}
+	
 	// returns the IndexedObject included in this IndexedResult
 	public IndexedObject<T> getIndexedObject() {
 		return this.indexedObject;
@@ -132,6 +176,23 @@ public class IndexedResult<T> {
 		return new IndexedResultComparator();
 	}
 
+	//--- private methods ---//
+	
+	// returns true if query token 'qt' is a prefix of 'token'
+	private static boolean startsWith(String token, PreparedQuery query, int qt) {
+		int length = query.tokenLengths[qt];
+		if (length > token.length()) {
+			return false;
+		}
+		int start = query.tokenStarts[qt];
+		for (int i = 0; i < length; i++) {
+			if (token.charAt(i) != query.tokenBytes[start + i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
 	//--- private inner classes ---//
 	
 	// Comparator for use in sorting IndexedResults.  Note that this is non-optimal, as it requests a new comparator
@@ -44,6 +44,35 @@ public class IndexedTokenMatcher<T> {
 	// the smallest token prefix, no others matter. We just search in that List.)
 	private Map<String,Integer> termCount = null;
 	
+	// The same data as 'keystone' and 'termCount', but in arrays indexed by prefix code (see ITMUtils.prefixCode) and
+	// without boxing, so the zero-garbage search path can look prefixes up without creating Strings.  Built from the
+	// maps by the first such search (or when a memory budget drops the maps, or by an IndexedTokenMatcherHolder before
+	// it publishes the matcher), so a matcher only searched through search(query, maxCount) need not hold both copies.
+	// See getCodeArrays().
+	private volatile PrefixCodeArrays codeArrays = null;
+	
+	// Optional column-oriented copy of 'searchableTerms', used for faster candidate scanning when the ITMConfig asks
+	// for it.  Entries are in the same order as 'searchableTerms'.
+	private ColumnarEntryStore columnarStore = null;
+	
+	// Optional suffix array over the lowercase strings of 'searchableTerms', used to find infix matches when the
+	// ITMConfig asks for them.
+	private SuffixArrayIndex infixIndex = null;
+	
+	// Optional precomputed token completions, used by completeToken() when the ITMConfig asks for them.
+	private TokenCompletions tokenCompletions = null;
+	
+	// Optional hash indexes from each entry's lowercase string, and from its tokens joined by single spaces, to the
+	// entries that have it, built when the ITMConfig asks for them.  The first gives a query's exact matches directly.
+	private ExactMatchIndex exactIndex = null;
+	private ExactMatchIndex tokenSequenceIndex = null;
+	
+	// optional settings used while building the indexes
+	private ITMConfig config = new ITMConfig();
+	
+	// per-thread working storage for search(query, maxCount) once the boxed indexes were dropped to meet a memory budget
+	private ThreadLocal<SearchContext> fallbackContexts = new ThreadLocal<SearchContext>();
+	
 	//--- constructors ---//
 	
 	public IndexedTokenMatcher(List<IndexedObject<T>> indexedObjects) {
@@ -54,6 +83,13 @@ public class IndexedTokenMatcher<T> {
 		this.setIndexedObjects(indexedObjects, true);
 	}
 	
+	public IndexedTokenMatcher(List<IndexedObject<T>> indexedObjects, boolean alreadyDenormalized, ITMConfig config) {
+		if (config != null) {
+			this.config = config;
+		}
+		this.setIndexedObjects(indexedObjects, alreadyDenormalized);
+	}
+	
 	//--- public methods ---//
 	
 	// Extract the IndexedObjects contained in the list of matching IndexedResults.
@@ -88,11 +124,37 @@ public class IndexedTokenMatcher<T> {
 	//		c. begins matches to the term (name)
 	//		d. begins matches to the synonym
 	//		e. everything else
+	// 3. If infix search is enabled in the ITMConfig, a sixth group follows: entries that contain the query string
+	//		anywhere, but did not match in any of the first five ways.
 	public List<IndexedResult<T>> search(String query, int maxCount) {
+		if ((this.keystone == null) || (this.prefixes == null)) {
+			// Some of the boxed indexes were dropped to meet a memory budget, so search the prefix code arrays instead.
+			SearchContext context = this.fallbackContexts.get();
+			if (context == null) {
+				context = new SearchContext();
+				this.fallbackContexts.set(context);
+			}
+			ListSink<T> sink = new ListSink<T>();
+			this.search(query, maxCount, context, sink);
+			return sink.results;
+		}
+		
 		String queryLower = query.toLowerCase();
 		List<IndexedResult<T>> matches = new ArrayList<IndexedResult<T>>();
 		List<String> queryTokens = ITMUtils.tokenize(query);
 		
+		// Exact matches come first, so if there are at least 'maxCount' of them, they're all we need.  (A query with no
+		// alphanumerics never matches anything, though, even if an entry is the same string.)
+		if ((this.exactIndex != null) && (maxCount > 0) && (queryTokens.get(0).length() > 0)) {
+			int group = this.exactIndex.find(queryLower);
+			if ((group >= 0) && (this.exactIndex.getSize(group) >= maxCount)) {
+				for (int i = 0; i < maxCount; i++) {
+					matches.add(this.searchableTerms.get(this.exactIndex.getEntry(group, i)));
+				}
+				return matches;
+			}
+		}
+		
 		// For the sake of efficiency, we want to find the minimal set of IndexedResult objects to examine.  To do this,
 		// we want to find the oddest (most rare) of the tokens in queryTokens and look first at the IndexedResult objects
 		// for that one.  (The other tokens don't matter yet, as the matching terms will have to match the oddest
@@ -111,8 +173,14 @@ public class IndexedTokenMatcher<T> {
 				}
 			} else {
 				// User entered a token with an unknown prefix, so we can bail out now.  (Or the termCounts are
-				// being initialized in another thread, but are not quite ready.)
-				return matches;
+				// being initialized in another thread, but are not quite ready.  Use an IndexedTokenMatcherHolder
+				// to rebuild in the background and only publish fully-built matchers.)
+				if (this.infixIndex == null) {
+					return matches;
+				}
+				// No token-based matches are possible, but infix matches still are.
+				oddestPrefix = null;
+				break;
 			}
 		}
 		
@@ -126,6 +194,12 @@ public class IndexedTokenMatcher<T> {
 		List<IndexedResult<T>> beginsSynonym = new ArrayList<IndexedResult<T>>();
 		List<IndexedResult<T>> otherMatches = new ArrayList<IndexedResult<T>>();
 		
+		// entries matched so far (one bit per entry), tracked only when we'll need to leave them out of infix matches
+		long[] matched = null;
+		if (this.useInfix(queryLower, queryTokens)) {
+			matched = new long[(this.searchableTerms.size() + 63) >>> 6];
+		}
+		
 		if (oddestPrefix != null) {
 			// list of indexes for IndexResults we need to check
 			List<Integer> indexesToSearch = null;
@@ -154,10 +228,26 @@ public class IndexedTokenMatcher<T> {
 				indexesToSearch = this.keystone.get(oddestPrefix);
 			}
 			
+			// If we have a columnar store, lay out the query once for comparison against it.
+			PreparedQuery preparedQuery = null;
+			if (this.columnarStore != null) {
+				preparedQuery = new PreparedQuery();
+				preparedQuery.set(queryLower, queryTokens);
+			}
+
 			// Search through the identified IndexResults objects, compiling the five bins of matches.
 			for (Integer index : indexesToSearch) {
 				IndexedResult<T> indexedResult = this.searchableTerms.get(index);
-				int matchCode = indexedResult.getMatchType(queryLower, queryTokens);
+				int matchCode;
+				if (preparedQuery != null) {
+					matchCode = this.columnarStore.getMatchType(index, preparedQuery);
+				} else {
+					matchCode = indexedResult.getMatchType(queryLower, queryTokens);
+				}
+
+				if ((matched != null) && (matchCode != IndexedResult.NO_MATCH)) {
+					matched[index >>> 6] |= (1L << index);
+				}
 
 				if (matchCode == IndexedResult.NO_MATCH) {
 					// This indexedResult does not match, so move on to the next.
@@ -181,22 +271,269 @@ public class IndexedTokenMatcher<T> {
 			if (matches.size() < maxCount) matches.addAll(beginsSynonym);
 			if (matches.size() < maxCount) matches.addAll(otherMatches);
 		}
+		
+		// Infix matches come last, in 'searchableTerms' order like the other bins.
+		if ((matched != null) && (matches.size() < maxCount)) {
+			long[] infix = new long[matched.length];
+			if (this.infixIndex.markEntries(queryLower.toCharArray(), queryLower.length(), infix, matched) > 0) {
+				for (int w = 0; (w < infix.length) && (matches.size() < maxCount); w++) {
+					long bits = infix[w];
+					while ((bits != 0) && (matches.size() < maxCount)) {
+						matches.add(this.searchableTerms.get((w << 6) + Long.numberOfTrailingZeros(bits)));
+						bits = bits & (bits - 1);
+					}
+				}
+			}
+		}
 		if (matches.size() > maxCount) {
 			return matches.subList(0, maxCount);
 		}
 		return matches;
 	}
 	
+	// Match the given 'query' string against our set of possible results, passing the top 'maxCount' matches to the
+	// 'sink' (in the same order as the List-returning search), and returning the number passed.  All working storage
+	// comes from the 'context', so once the context has grown to fit, a search allocates nothing.  (Queries with
+	// non-ASCII characters are the exception, as they are lowercased and tokenized by the standard library.)
+	public int search(String query, int maxCount, SearchContext context, ResultSink<T> sink) {
+		PreparedQuery preparedQuery = context.query;
+		preparedQuery.set(query);
+		context.clearBins();
+		
+		// As in the other search(), skip scanning if there are at least 'maxCount' exact matches.
+		if ((this.exactIndex != null) && (maxCount > 0) && (preparedQuery.getTokenLength(0) > 0)) {
+			int group = this.exactIndex.find(preparedQuery.lower, preparedQuery.lowerLength);
+			if ((group >= 0) && (this.exactIndex.getSize(group) >= maxCount)) {
+				for (int i = 0; i < maxCount; i++) {
+					IndexedResult<T> indexedResult = this.searchableTerms.get(this.exactIndex.getEntry(group, i));
+					sink.accept(indexedResult,
+						indexedResult.byTerm() ? IndexedResult.EXACT_TERM_MATCH : IndexedResult.EXACT_SYNONYM_MATCH);
+				}
+				return maxCount;
+			}
+		}
+		
+		// As in the other search(), find the rarest token prefix.  If any token has an unknown prefix, there are no
+		// token-based matches (though there may still be infix matches).
+		boolean infix = this.useInfix(preparedQuery);
+		PrefixCodeArrays codeArrays = this.getCodeArrays();
+		int minCount = -1;
+		int oddestCode = -1;
+		int oddestLength = 0;
+		for (int t = 0; t < preparedQuery.getTokenCount(); t++) {
+			int code = preparedQuery.getBestPrefixCode(t);
+			if ((code < 0) || (codeArrays.termCount[code] == 0)) {
+				if (!infix) {
+					return 0;
+				}
+				oddestCode = -1;
+				break;
+			}
+			int tokenCount = codeArrays.termCount[code];
+			if ((tokenCount < minCount) || (minCount < 0)) {
+				minCount = tokenCount;
+				oddestCode = code;
+				oddestLength = Math.min(preparedQuery.getTokenLength(t), 3);
+			}
+		}
+		
+		if (oddestCode < 0) {
+			// nothing to scan
+		} else if (oddestLength < 3) {
+			// For 1- and 2-character prefixes, the keystone lists to merge are those of every code in the prefix's span.
+			// Mark their indexes in the 'seen' bitset, then read the bits back in order (clearing them as we go).
+			long[] seen = context.getSeen(this.searchableTerms.size());
+			int lowWord = Integer.MAX_VALUE;
+			int highWord = -1;
+			int lastCode = oddestCode + ITMUtils.prefixCodeSpan(oddestLength);
+			for (int code = oddestCode; code < lastCode; code++) {
+				int[] indexes = codeArrays.keystone[code];
+				if (indexes != null) {
+					for (int i = 0; i < indexes.length; i++) {
+						seen[indexes[i] >>> 6] |= (1L << indexes[i]);
+					}
+					lowWord = Math.min(lowWord, indexes[0] >>> 6);
+					highWord = Math.max(highWord, indexes[indexes.length - 1] >>> 6);
+				}
+			}
+			for (int w = lowWord; w <= highWord; w++) {
+				long bits = seen[w];
+				seen[w] = 0;
+				while (bits != 0) {
+					this.addToBin((w << 6) + Long.numberOfTrailingZeros(bits), preparedQuery, context);
+					bits = bits & (bits - 1);
+				}
+			}
+		} else {
+			int[] indexes = codeArrays.keystone[oddestCode];
+			for (int i = 0; i < indexes.length; i++) {
+				this.addToBin(indexes[i], preparedQuery, context);
+			}
+		}
+		
+		if (infix) {
+			this.addInfixMatches(maxCount, context);
+		}
+		
+		// Pass along the bins in priority order, stopping at 'maxCount'.
+		int passed = 0;
+		for (int matchType = IndexedResult.EXACT_TERM_MATCH; matchType <= IndexedResult.INFIX_MATCH; matchType++) {
+			int[] bin = context.bins[matchType];
+			int binSize = context.binSizes[matchType];
+			for (int i = 0; (i < binSize) && (passed < maxCount); i++) {
+				sink.accept(this.searchableTerms.get(bin[i]), matchType);
+				passed++;
+			}
+		}
+		return passed;
+	}
+	
+	// Get every entry whose term or synonym is exactly 'query' (ignoring case), terms first and then synonyms.  If
+	// 'byTokens' is true, compare their tokens instead, so differences in punctuation and spacing don't matter (eg-
+	// "Heart-Valve" finds "heart valve").  This takes a single hash lookup when the ITMConfig enables the exact index,
+	// and a pass over every entry otherwise.
+	public List<IndexedResult<T>> searchExact(String query, boolean byTokens) {
+		List<IndexedResult<T>> matches = new ArrayList<IndexedResult<T>>();
+		PreparedQuery preparedQuery = new PreparedQuery();
+		preparedQuery.set(query);
+		if (preparedQuery.getTokenLength(0) == 0) {
+			return matches;
+		}
+		
+		if (this.exactIndex != null) {
+			ExactMatchIndex index = byTokens ? this.tokenSequenceIndex : this.exactIndex;
+			int group = byTokens ? index.findTokens(preparedQuery) : index.find(preparedQuery.lower, preparedQuery.lowerLength);
+			for (int i = 0; (group >= 0) && (i < index.getSize(group)); i++) {
+				matches.add(this.searchableTerms.get(index.getEntry(group, i)));
+			}
+			return matches;
+		}
+		
+		String key = byTokens ? tokenSequence(ITMUtils.tokenize(query)) : query.toLowerCase();
+		List<IndexedResult<T>> synonyms = new ArrayList<IndexedResult<T>>();
+		for (IndexedResult<T> indexedResult : this.searchableTerms) {
+			String entryKey = byTokens ? tokenSequence(indexedResult.getTokens()) : indexedResult.getLowerString();
+			if (key.equals(entryKey)) {
+				if (indexedResult.byTerm()) {
+					matches.add(indexedResult);
+				} else {
+					synonyms.add(indexedResult);
+				}
+			}
+		}
+		matches.addAll(synonyms);
+		return matches;
+	}
+	
+	// Get up to 'maxCount' distinct tokens that complete the last token of 'query' (eg- "theiler" for "mouse theil"),
+	// most frequent across 'searchableTerms' first (then those found in better-ranked entries).  Returns an empty list
+	// if the query ends without a partial token, or if token completions were not enabled in the ITMConfig.
+	public List<String> completeToken(String query, int maxCount) {
+		if ((this.tokenCompletions == null) || (query.length() == 0)) {
+			return new ArrayList<String>();
+		}
+		char last = Character.toLowerCase(query.charAt(query.length() - 1));
+		if (!(((last >= 'a') && (last <= 'z')) || ((last >= '0') && (last <= '9')))) {
+			return new ArrayList<String>();
+		}
+		List<String> queryTokens = ITMUtils.tokenize(query);
+		return this.tokenCompletions.complete(queryTokens.get(queryTokens.size() - 1), maxCount);
+	}
+	
 	// get any debugging messages collected while building the IndexedTokenMatcher
 	public List<String> getLogMessages() {
 		return logger.getMessages();
 	}
 	
+	// Estimate the heap retained by each of our data structures.  (The IndexedObjects themselves belong to the caller
+	// and are not included.)  Structures dropped to meet a memory budget are reported as zero bytes.
+	public MemoryReport getMemoryReport() {
+		MemoryReport report = new MemoryReport();
+		
+		long entries = MemoryReport.arrayList(this.searchableTerms.size());
+		long tokenLists = 0;
+		long lowerStrings = 0;
+		for (IndexedResult<T> indexedResult : this.searchableTerms) {
+			// String methods return the same instance when there's nothing to change, so a lowercase string or token
+			// may be the caller's own term or synonym.  Mark those as seen first, so they aren't counted as ours.
+			IndexedObject<T> indexedObject = indexedResult.getIndexedObject();
+			report.firstSighting(indexedObject.getTerm());
+			for (String synonym : indexedObject.getSynonyms()) {
+				report.firstSighting(synonym);
+			}
+			
+			entries = entries + MemoryReport.object((4 * MemoryReport.REFERENCE) + 1);
+			tokenLists = tokenLists + MemoryReport.arraysAsList(indexedResult.getTokens().size());
+			for (String token : indexedResult.getTokens()) {
+				tokenLists = tokenLists + report.string(token);
+			}
+			lowerStrings = lowerStrings + report.string(indexedResult.getLowerString());
+		}
+		report.add("searchableTerms entries", entries);
+		report.add("token lists", tokenLists);
+		report.add("lowercase strings", lowerStrings);
+		
+		long bytes = 0;
+		if (this.keystone != null) {
+			bytes = MemoryReport.hashMap(this.keystone.size());
+			for (String key : this.keystone.keySet()) {
+				List<Integer> indexes = this.keystone.get(key);
+				bytes = bytes + report.string(key) + MemoryReport.arrayList(indexes.size());
+				for (Integer index : indexes) {
+					bytes = bytes + report.integer(index);
+				}
+			}
+		}
+		report.add("keystone postings", bytes);
+		
+		bytes = 0;
+		if (this.prefixes != null) {
+			bytes = MemoryReport.hashMap(this.prefixes.size());
+			for (String key : this.prefixes.keySet()) {
+				bytes = bytes + report.string(key) + MemoryReport.arrayList(this.prefixes.get(key).size());
+				for (String prefix : this.prefixes.get(key)) {
+					bytes = bytes + report.string(prefix);
+				}
+			}
+		}
+		report.add("prefixes", bytes);
+		
+		bytes = 0;
+		if (this.termCount != null) {
+			bytes = MemoryReport.hashMap(this.termCount.size());
+			for (String key : this.termCount.keySet()) {
+				bytes = bytes + report.string(key) + report.integer(this.termCount.get(key));
+			}
+		}
+		report.add("termCount", bytes);
+		
+		report.add("indexedKeys", (this.indexedKeys == null) ? 0 : MemoryReport.hashSet(this.indexedKeys.size()));
+		
+		report.add("prefix code arrays", (this.codeArrays == null) ? 0 : this.getCodeArrayBytes());
+		
+		report.add("columnar store", (this.columnarStore == null) ? 0 : this.columnarStore.getMemorySize());
+		report.add("infix suffix array", (this.infixIndex == null) ? 0 : this.infixIndex.getMemorySize());
+		report.add("token completions", (this.tokenCompletions == null) ? 0 : this.tokenCompletions.getMemorySize(report));
+		
+		bytes = 0;
+		if (this.exactIndex != null) {
+			bytes = this.exactIndex.getMemorySize(report) + this.tokenSequenceIndex.getMemorySize(report);
+		}
+		report.add("exact-match indexes", bytes);
+		return report;
+	}
+	
 	// Report to the log file various statistics about the indexes.  Apologies for ending each with a preposition,
 	// but it's just for analysis and debugging.
 	public void analyzeIndexes() {
 		List<Integer> ints = new ArrayList<Integer>();		// for computations
 		
+		if ((this.keystone == null) || (this.prefixes == null) || (this.termCount == null)) {
+			logger.log("Some indexes were dropped to meet the memory budget; analyzing memory use only");
+			this.logMemoryReport(this.getMemoryReport());
+			return;
+		}
+		
 		logger.log("Analyzing keystone index:");
 		logger.log(" - " + this.keystone.size() + " keys");
 		for (String key : this.keystone.keySet()) {
@@ -260,9 +597,18 @@ public class IndexedTokenMatcher<T> {
 		logger.log(" - average of " + this.average(ints3) + " terms to search");
 		logger.log(" - std dev of " + this.stddev(ints3) + " terms to search");
 
+		this.logMemoryReport(this.getMemoryReport());
 		logger.log("Finished analysis of indexes");
 	}
 	
+	//--- package methods ---//
+	
+	// Build the prefix code arrays now, rather than in the first zero-garbage search (which would hold up any others
+	// made meanwhile), eg- so an IndexedTokenMatcherHolder can do it before publishing this matcher.
+	void prepareCodeArrays() {
+		this.getCodeArrays();
+	}
+	
 	//--- private methods ---//
 	
 	// Initialize the set of objects we want to consider, pulling just the terms and synonyms themselves from a list of
@@ -278,6 +624,103 @@ public class IndexedTokenMatcher<T> {
 		
 		// Analyze the list of searchable entries and build the indexes needed to efficiently search against them. 
 		this.createIndexes();
+		this.applyMemoryBudget();
+	}
+	
+	// If the config sets a memory budget and our indexes are over it, switch to cheaper representations one at a time
+	// (cheapest to give up first) until we fit.  Each step drops a structure whose data the zero-garbage search path
+	// can do without, so results don't change, and is skipped if it wouldn't make the indexes smaller.
+	private void applyMemoryBudget() {
+		long budget = this.config.getMemoryBudget();
+		if (budget <= 0) {
+			return;
+		}
+		MemoryReport report = this.getMemoryReport();
+		logger.log("Estimated " + report.getTotalBytes() + " bytes against a budget of " + budget);
+		
+		if (report.getTotalBytes() > budget) {
+			// only needed while building
+			this.indexedKeys = null;
+			report = this.getMemoryReport();
+			logger.log(" - released indexedKeys; now " + report.getTotalBytes() + " bytes");
+		}
+		if (report.getTotalBytes() > budget) {
+			// The prefix code arrays hold the same postings and counts without boxing (and short prefixes can be expanded
+			// by their span of prefix codes instead of precomputed lists), but have a slot for every possible prefix, so
+			// for a small vocabulary they can be bigger than the maps they would replace.
+			long mapBytes = report.getBytes("keystone postings") + report.getBytes("termCount") + report.getBytes("prefixes");
+			long codeArrayBytes = this.getCodeArrayBytes();
+			if (codeArrayBytes < mapBytes) {
+				this.getCodeArrays();
+				this.keystone = null;
+				this.termCount = null;
+				this.prefixes = null;
+				report = this.getMemoryReport();
+				logger.log(" - kept postings only as packed int arrays; now " + report.getTotalBytes() + " bytes");
+			} else {
+				logger.log(" - kept boxed prefix maps (" + mapBytes + " bytes), as packed int arrays would take "
+					+ codeArrayBytes);
+			}
+		}
+		if ((report.getTotalBytes() > budget) && (this.columnarStore != null)) {
+			this.columnarStore = null;
+			report = this.getMemoryReport();
+			logger.log(" - dropped columnar entry store; now " + report.getTotalBytes() + " bytes");
+		}
+		if ((report.getTotalBytes() > budget) && (this.exactIndex != null)) {
+			// exact matches are still found by scanning, and searchExact() falls back on comparing every entry
+			this.exactIndex = null;
+			this.tokenSequenceIndex = null;
+			report = this.getMemoryReport();
+			logger.log(" - dropped exact-match indexes; now " + report.getTotalBytes() + " bytes");
+		}
+		if (report.getTotalBytes() > budget) {
+			logger.log(" - still over budget, with no cheaper representations left");
+		}
+	}
+	
+	// Get the prefix code arrays, copying 'keystone' and 'termCount' into them the first time they are needed.  Only
+	// one thread does the copying; others asking at the same time wait for it.
+	private PrefixCodeArrays getCodeArrays() {
+		PrefixCodeArrays codeArrays = this.codeArrays;
+		if (codeArrays == null) {
+			synchronized (this) {
+				codeArrays = this.codeArrays;
+				if (codeArrays == null) {
+					codeArrays = new PrefixCodeArrays(this.keystone, this.termCount);
+					this.codeArrays = codeArrays;
+					logger.log("Populated prefix code arrays");
+				}
+			}
+		}
+		return codeArrays;
+	}
+	
+	// estimated bytes of heap retained by the prefix code arrays (see MemoryReport), or that they would retain once built
+	private long getCodeArrayBytes() {
+		long bytes = MemoryReport.object(2 * MemoryReport.REFERENCE) + MemoryReport.referenceArray(ITMUtils.PREFIX_CODES)
+			+ MemoryReport.intArray(ITMUtils.PREFIX_CODES);
+		PrefixCodeArrays codeArrays = this.codeArrays;
+		if (codeArrays != null) {
+			for (int[] indexes : codeArrays.keystone) {
+				if (indexes != null) {
+					bytes = bytes + MemoryReport.intArray(indexes.length);
+				}
+			}
+		} else {
+			for (List<Integer> indexes : this.keystone.values()) {
+				bytes = bytes + MemoryReport.intArray(indexes.size());
+			}
+		}
+		return bytes;
+	}
+	
+	// write each line of the memory report to the log
+	private void logMemoryReport(MemoryReport report) {
+		logger.log("Estimated memory use:");
+		for (String line : report.getLines()) {
+			logger.log(line);
+		}
 	}
 
 	// Build and return the set of IndexedResult objects needed to represent all the different strings that can be
@@ -315,6 +758,74 @@ public class IndexedTokenMatcher<T> {
 		return indexedResults;
 	}
 	
+	// Should we look for infix matches to this query?  Only if we have the index, and the query is long enough and
+	// has at least one alphanumeric character.
+	private boolean useInfix(String queryLower, List<String> queryTokens) {
+		return (this.infixIndex != null) && (queryLower.length() >= this.config.getInfixMinLength())
+			&& (queryTokens.get(0).length() > 0);
+	}
+	
+	// Should we look for infix matches to this prepared query?  (Same rules as above.)
+	private boolean useInfix(PreparedQuery preparedQuery) {
+		return (this.infixIndex != null) && (preparedQuery.lowerLength >= this.config.getInfixMinLength())
+			&& (preparedQuery.getTokenLength(0) > 0);
+	}
+	
+	// Fill the context's infix bin with the entries that contain the prepared query but are not in any other bin
+	// (unless the other bins already have 'maxCount' results, making infix matches moot).
+	private void addInfixMatches(int maxCount, SearchContext context) {
+		int matchedCount = 0;
+		for (int matchType = IndexedResult.EXACT_TERM_MATCH; matchType <= IndexedResult.OTHER_MATCH; matchType++) {
+			matchedCount = matchedCount + context.binSizes[matchType];
+		}
+		if (matchedCount >= maxCount) {
+			return;
+		}
+		
+		int entryCount = this.searchableTerms.size();
+		long[] seen = context.getSeen(entryCount);
+		long[] matched = context.getMatched(entryCount);
+		for (int matchType = IndexedResult.EXACT_TERM_MATCH; matchType <= IndexedResult.OTHER_MATCH; matchType++) {
+			for (int i = 0; i < context.binSizes[matchType]; i++) {
+				int index = context.bins[matchType][i];
+				matched[index >>> 6] |= (1L << index);
+			}
+		}
+		
+		PreparedQuery preparedQuery = context.query;
+		if (this.infixIndex.markEntries(preparedQuery.lower, preparedQuery.lowerLength, seen, matched) > 0) {
+			int words = (entryCount + 63) >>> 6;
+			for (int w = 0; w < words; w++) {
+				long bits = seen[w];
+				seen[w] = 0;
+				while (bits != 0) {
+					context.addToBin(IndexedResult.INFIX_MATCH, (w << 6) + Long.numberOfTrailingZeros(bits));
+					bits = bits & (bits - 1);
+				}
+			}
+		}
+		
+		// leave 'matched' cleared for the next search
+		for (int matchType = IndexedResult.EXACT_TERM_MATCH; matchType <= IndexedResult.OTHER_MATCH; matchType++) {
+			for (int i = 0; i < context.binSizes[matchType]; i++) {
+				matched[context.bins[matchType][i] >>> 6] = 0;
+			}
+		}
+	}
+	
+	// Compare the entry at 'index' with the prepared query, and add it to the context's bin for its match type.
+	private void addToBin(int index, PreparedQuery preparedQuery, SearchContext context) {
+		int matchCode;
+		if (this.columnarStore != null) {
+			matchCode = this.columnarStore.getMatchType(index, preparedQuery);
+		} else {
+			matchCode = this.searchableTerms.get(index).getMatchType(preparedQuery);
+		}
+		if (matchCode != IndexedResult.NO_MATCH) {
+			context.addToBin(matchCode, index);
+		}
+	}
+	
 	// Get the maximal prefix for which we have data for this token.  (If a token has 3 characters, we return those 3.
 	// If not, then try fall back to 2 or 1.)
 	private String getBestPrefix (String token) {
@@ -372,11 +883,15 @@ public class IndexedTokenMatcher<T> {
 				}
 				
 				if (tokenLength >= 1) {
-					// Add the entry to the keystone mapping (3-character prefix to integer index)
+					// Add the entry to the keystone mapping (3-character prefix to integer index), unless another token
+					// of this same entry already added it.
 					if (!this.keystone.containsKey(prefix3)) {
 						this.keystone.put(prefix3, new ArrayList<Integer>());
 					}
-					this.keystone.get(prefix3).add(i);
+					List<Integer> indexes = this.keystone.get(prefix3);
+					if (indexes.isEmpty() || (indexes.get(indexes.size() - 1) != i)) {
+						indexes.add(i);
+					}
 					
 					// Add mapping from 1-letter prefix to 3-letter prefix.
 					if (!this.prefixes.containsKey(prefix1)) {
@@ -429,8 +944,54 @@ public class IndexedTokenMatcher<T> {
 		}
 		
 		logger.log(" - populated term counts");
+		
+		if (this.config.useColumnarStore()) {
+			this.columnarStore = new ColumnarEntryStore(this.searchableTerms);
+			logger.log(" - built columnar entry store");
+		}
+		
+		if (this.config.useInfixSearch()) {
+			this.infixIndex = new SuffixArrayIndex(this.searchableTerms);
+			logger.log(" - built infix suffix array");
+		}
+		
+		if (this.config.useTokenCompletions()) {
+			this.tokenCompletions = new TokenCompletions(this.searchableTerms, this.config.getTokenCompletionCount());
+			logger.log(" - built token completions");
+		}
+		
+		if (this.config.useExactIndex()) {
+			String[] lowerStrings = new String[this.searchableTerms.size()];
+			String[] tokenSequences = new String[this.searchableTerms.size()];
+			boolean[] isTerm = new boolean[this.searchableTerms.size()];
+			for (int i = 0; i < this.searchableTerms.size(); i++) {
+				IndexedResult<T> indexedResult = this.searchableTerms.get(i);
+				lowerStrings[i] = indexedResult.getLowerString();
+				tokenSequences[i] = tokenSequence(indexedResult.getTokens());
+				isTerm[i] = indexedResult.byTerm();
+			}
+			this.exactIndex = new ExactMatchIndex(lowerStrings, isTerm);
+			this.tokenSequenceIndex = new ExactMatchIndex(tokenSequences, isTerm);
+			logger.log(" - built exact-match indexes");
+		}
 	} // end -- createIndexes() method
 	
+	// Join the given tokens with single spaces, or return null if there are none (tokenize() gives a single empty
+	// token for a string with no alphanumerics).  A lone token is returned as-is, sharing the same String.
+	private static String tokenSequence(List<String> tokens) {
+		if (tokens.get(0).length() == 0) {
+			return null;
+		} else if (tokens.size() == 1) {
+			return tokens.get(0);
+		}
+		StringBuffer sb = new StringBuffer(tokens.get(0));
+		for (int i = 1; i < tokens.size(); i++) {
+			sb.append(' ');
+			sb.append(tokens.get(i));
+		}
+		return sb.toString();
+	}
+	
 	// return the minimum value from the given list of integers (as a String)
 	private String min(List<Integer> ints) {
 		int mn = Integer.MAX_VALUE;
@@ -477,4 +1038,35 @@ public class IndexedTokenMatcher<T> {
 		double avgDistance = dsum / ints.size();
 		return String.format("%.3f", Math.sqrt(avgDistance));
 	}
+	
+	//--- private inner classes ---//
+	
+	// a ResultSink that just collects the results into a List
+	private static class ListSink<T> implements ResultSink<T> {
+		List<IndexedResult<T>> results = new ArrayList<IndexedResult<T>>();
+		
+		public void accept(IndexedResult<T> result, int matchType) {
+			this.results.add(result);
+		}
+	}
+	
+	// 'keystone' and 'termCount' as arrays indexed by prefix code; the lists in 'keystone' are in ascending order
+	private static class PrefixCodeArrays {
+		int[][] keystone = new int[ITMUtils.PREFIX_CODES][];
+		int[] termCount = new int[ITMUtils.PREFIX_CODES];
+		
+		PrefixCodeArrays(Map<String,List<Integer>> keystoneMap, Map<String,Integer> termCountMap) {
+			for (String prefix : keystoneMap.keySet()) {
+				List<Integer> indexes = keystoneMap.get(prefix);
+				int[] codeIndexes = new int[indexes.size()];
+				for (int j = 0; j < codeIndexes.length; j++) {
+					codeIndexes[j] = indexes.get(j);
+				}
+				this.keystone[ITMUtils.prefixCode(prefix)] = codeIndexes;
+			}
+			for (String prefix : termCountMap.keySet()) {
+				this.termCount[ITMUtils.prefixCode(prefix)] = termCountMap.get(prefix);
+			}
+		}
+	}
 }
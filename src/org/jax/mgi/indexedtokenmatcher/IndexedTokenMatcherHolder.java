@@ -0,0 +1,291 @@
+package org.jax.mgi.indexedtokenmatcher;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/* Is: a managed holder for an IndexedTokenMatcher that can be rebuilt in the background
+ * Has: a source of IndexedObjects, the currently published IndexedTokenMatcher, and a ring of recent queries
+ * Does: rebuilds a new IndexedTokenMatcher from the source on a background thread, warms it up by replaying
+ * 	recent queries (and any warm-up log) through both kinds of search, and then publishes it atomically.  Searches that already picked up the
+ * 	old matcher simply finish against it; the next search sees the new one.  Never exposes a half-built matcher.
+ * 	Can also record every search made through it with a QueryRecorder.
+ * Notes: Timings and an estimate of heap overlap (memory held by the new matcher while the old one is still
+ * 	published, from the new matcher's MemoryReport) are collected for each rebuild, and are available via the
+ * 	getters and the log messages.
+ */
+public class IndexedTokenMatcherHolder<T> {
+	private MessageCollector logger = new MessageCollector();
+
+	//--- instance variables ---//
+
+	// supplies the full list of IndexedObjects each time we (re)build
+	private Callable<List<IndexedObject<T>>> source;
+
+	// passed along to the IndexedTokenMatcher constructor
+	private boolean alreadyDenormalized;
+	private ITMConfig config = null;
+
+	// the currently published matcher (null until the first build completes)
+	private AtomicReference<IndexedTokenMatcher<T>> current = new AtomicReference<IndexedTokenMatcher<T>>();
+
+	// single background thread used for rebuilds, so rebuilds never overlap one another
+	private ExecutorService rebuildExecutor;
+
+	// ring of recently searched strings, replayed against a new matcher before it is published
+	private AtomicReferenceArray<String> recentQueries;
+	private AtomicLong queryCounter = new AtomicLong();
+
+	// optional recorder of every search made through this holder, and optional recorded searches to replay against
+	// each new matcher (in addition to the recent queries) before it is published
+	private volatile QueryRecorder queryRecorder = null;
+	private volatile List<QueryLogEntry> warmupLog = null;
+
+	// statistics for the most recent rebuild
+	private volatile int generation = 0;				// number of matchers published so far
+	private volatile long lastBuildMillis = 0;			// time to build the new matcher
+	private volatile long lastWarmupMillis = 0;			// time to replay recent queries against it
+	private volatile long lastSwapNanos = 0;			// time to publish it
+	private volatile long lastHeapOverlapBytes = 0;		// estimated heap retained by the new matcher while the old was live
+	private volatile long lastHeapGrowthBytes = 0;		// change in used heap across the rebuild (including garbage)
+
+	//--- constructors ---//
+
+	public IndexedTokenMatcherHolder(Callable<List<IndexedObject<T>>> source) {
+		this(source, false, 1000);
+	}
+
+	// 'warmupQueryCount' is the number of recent queries to remember and replay against each new matcher
+	public IndexedTokenMatcherHolder(Callable<List<IndexedObject<T>>> source, boolean alreadyDenormalized, int warmupQueryCount) {
+		this.source = source;
+		this.alreadyDenormalized = alreadyDenormalized;
+		this.recentQueries = new AtomicReferenceArray<String>(Math.max(warmupQueryCount, 0));
+		this.rebuildExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "IndexedTokenMatcherHolder-rebuild");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+	}
+
+	// as above, but building each matcher with the given 'config'
+	public IndexedTokenMatcherHolder(Callable<List<IndexedObject<T>>> source, boolean alreadyDenormalized, int warmupQueryCount,
+			ITMConfig config) {
+		this(source, alreadyDenormalized, warmupQueryCount);
+		this.config = config;
+	}
+
+	//--- public methods ---//
+
+	// Get the currently published matcher, or null if none has been built yet.  Callers that need to issue several
+	// searches against a consistent snapshot should get the matcher once and search it directly.
+	public IndexedTokenMatcher<T> get() {
+		return this.current.get();
+	}
+
+	// Match the given 'query' against the current matcher, returning the top 200 matches.
+	public List<IndexedResult<T>> search(String query) {
+		return this.search(query, 200);
+	}
+
+	// Match the given 'query' against the current matcher, returning the top 'maxCount' matches.  Returns an empty
+	// list if no matcher has been published yet.  The query is remembered for warming up the next rebuild.
+	public List<IndexedResult<T>> search(String query, int maxCount) {
+		this.remember(query);
+		IndexedTokenMatcher<T> matcher = this.current.get();
+		if (matcher == null) {
+			return new ArrayList<IndexedResult<T>>();
+		}
+		QueryRecorder recorder = this.queryRecorder;
+		if (recorder == null) {
+			return matcher.search(query, maxCount);
+		}
+		long start = System.nanoTime();
+		List<IndexedResult<T>> results = matcher.search(query, maxCount);
+		recorder.record(query, maxCount, results.size(), System.nanoTime() - start);
+		return results;
+	}
+
+	// Zero-garbage search against the current matcher (see IndexedTokenMatcher), returning the number of results passed
+	// to the 'sink', or 0 if no matcher has been published yet.  The query is remembered for warming up the next rebuild.
+	public int search(String query, int maxCount, SearchContext context, ResultSink<T> sink) {
+		this.remember(query);
+		IndexedTokenMatcher<T> matcher = this.current.get();
+		if (matcher == null) {
+			return 0;
+		}
+		QueryRecorder recorder = this.queryRecorder;
+		if (recorder == null) {
+			return matcher.search(query, maxCount, context, sink);
+		}
+		long start = System.nanoTime();
+		int passed = matcher.search(query, maxCount, context, sink);
+		recorder.record(query, maxCount, passed, System.nanoTime() - start);
+		return passed;
+	}
+
+	// Get token completions for 'query' from the current matcher (see IndexedTokenMatcher.completeToken), or an empty
+	// list if no matcher has been published yet.
+	public List<String> completeToken(String query, int maxCount) {
+		IndexedTokenMatcher<T> matcher = this.current.get();
+		if (matcher == null) {
+			return new ArrayList<String>();
+		}
+		return matcher.completeToken(query, maxCount);
+	}
+
+	// Record every search made through this holder with the given 'recorder' (or stop recording, if null).  Timings
+	// include any time spent in a caller's ResultSink.
+	public void setQueryRecorder(QueryRecorder recorder) {
+		this.queryRecorder = recorder;
+	}
+
+	// Replay these recorded searches (eg- from QueryRecorder.read) against each new matcher before publishing it, as
+	// well as the recent queries.
+	public void setWarmupLog(List<QueryLogEntry> warmupLog) {
+		this.warmupLog = warmupLog;
+	}
+
+	// Schedule a rebuild on the background thread.  The returned Future yields the newly published matcher (or
+	// throws whatever exception the source or build threw, in which case the old matcher remains published).
+	public Future<IndexedTokenMatcher<T>> rebuild() {
+		return this.rebuildExecutor.submit(new Callable<IndexedTokenMatcher<T>>() {
+			public IndexedTokenMatcher<T> call() throws Exception {
+				return buildAndPublish();
+			}
+		});
+	}
+
+	// Rebuild on the background thread and wait for it to finish; useful for the initial load.
+	public IndexedTokenMatcher<T> rebuildNow() throws Exception {
+		try {
+			return this.rebuild().get();
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof Exception) {
+				throw (Exception) e.getCause();
+			}
+			throw e;
+		}
+	}
+
+	// Stop accepting rebuilds.  The current matcher remains available for searching.
+	public void shutdown() {
+		this.rebuildExecutor.shutdown();
+	}
+
+	public int getGeneration() {
+		return this.generation;
+	}
+
+	public long getLastBuildMillis() {
+		return this.lastBuildMillis;
+	}
+
+	public long getLastWarmupMillis() {
+		return this.lastWarmupMillis;
+	}
+
+	public long getLastSwapNanos() {
+		return this.lastSwapNanos;
+	}
+
+	public long getLastHeapOverlapBytes() {
+		return this.lastHeapOverlapBytes;
+	}
+
+	// Get the change in used heap across the last rebuild (loading, building, and warming up).  This includes any
+	// garbage made along the way and is thrown off by a garbage collection, so it is only a rough secondary figure.
+	public long getLastHeapGrowthBytes() {
+		return this.lastHeapGrowthBytes;
+	}
+
+	// get any messages collected while rebuilding
+	public List<String> getLogMessages() {
+		synchronized (this.logger) {
+			return new ArrayList<String>(this.logger.getMessages());
+		}
+	}
+
+	//--- private methods ---//
+
+	// remember 'query' in the ring of recent queries, overwriting the oldest one
+	private void remember(String query) {
+		int size = this.recentQueries.length();
+		if ((size > 0) && (query != null)) {
+			int slot = (int) (this.queryCounter.getAndIncrement() % size);
+			this.recentQueries.set(slot, query);
+		}
+	}
+
+	// Build a new matcher from the source, warm it up, and publish it.  Only ever runs on the rebuild thread.
+	private IndexedTokenMatcher<T> buildAndPublish() throws Exception {
+		Runtime runtime = Runtime.getRuntime();
+		long heapBefore = runtime.totalMemory() - runtime.freeMemory();
+
+		long start = System.currentTimeMillis();
+		List<IndexedObject<T>> indexedObjects = this.source.call();
+		IndexedTokenMatcher<T> matcher;
+		if (this.config != null) {
+			matcher = new IndexedTokenMatcher<T>(indexedObjects, this.alreadyDenormalized, this.config);
+		} else if (this.alreadyDenormalized) {
+			matcher = new IndexedTokenMatcher<T>(indexedObjects, true);
+		} else {
+			matcher = new IndexedTokenMatcher<T>(indexedObjects);
+		}
+		long built = System.currentTimeMillis();
+
+		// Replay the warm-up log and the recent queries through both the List-returning and zero-garbage searches, so
+		// both paths are compiled and the new indexes are paged in before real traffic reaches them.  The latter's
+		// prefix code arrays are built first, so no live search has to wait for them (and they count in the overlap).
+		matcher.prepareCodeArrays();
+		List<QueryLogEntry> queries = new ArrayList<QueryLogEntry>();
+		List<QueryLogEntry> log = this.warmupLog;
+		if (log != null) {
+			queries.addAll(log);
+		}
+		for (int i = 0; i < this.recentQueries.length(); i++) {
+			String query = this.recentQueries.get(i);
+			if (query != null) {
+				queries.add(new QueryLogEntry(0, query, 200, 0, 0));
+			}
+		}
+		QueryReplay.replay(matcher, queries);
+		QueryReplay.replay(matcher, queries, new SearchContext());
+		int replayed = queries.size();
+		long warmed = System.currentTimeMillis();
+
+		// Both the old and new matchers are reachable until the swap, so the overlap is whatever the new one retains.
+		long heapOverlap = matcher.getMemoryReport().getTotalBytes();
+		long heapGrowth = (runtime.totalMemory() - runtime.freeMemory()) - heapBefore;
+
+		long swapStart = System.nanoTime();
+		IndexedTokenMatcher<T> old = this.current.getAndSet(matcher);
+		long swapNanos = System.nanoTime() - swapStart;
+
+		this.lastBuildMillis = built - start;
+		this.lastWarmupMillis = warmed - built;
+		this.lastSwapNanos = swapNanos;
+		this.lastHeapOverlapBytes = heapOverlap;
+		this.lastHeapGrowthBytes = heapGrowth;
+		this.generation++;
+
+		synchronized (this.logger) {
+			logger.log("Published matcher generation " + this.generation + (old == null ? " (initial build)" : ""));
+			logger.log(" - built in " + this.lastBuildMillis + " ms");
+			logger.log(" - warmed up with " + replayed + " queries in " + this.lastWarmupMillis + " ms");
+			logger.log(" - swapped in " + this.lastSwapNanos + " ns");
+			logger.log(" - estimated heap overlap of " + this.lastHeapOverlapBytes + " bytes");
+			logger.log(" - used heap grew by " + this.lastHeapGrowthBytes + " bytes during the rebuild");
+		}
+		return matcher;
+	}
+}
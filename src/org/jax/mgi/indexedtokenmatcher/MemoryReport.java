@@ -0,0 +1,189 @@
+package org.jax.mgi.indexedtokenmatcher;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/* Is: an estimate of the heap retained by each of an IndexedTokenMatcher's data structures
+ * Has: a count of bytes for each named structure, plus static helpers for estimating the size of common objects
+ * Does: estimates sizes from the JVM's object layout (header size, reference size, and alignment, read from the
+ * 	HotSpot diagnostic bean when available), so no instrumentation agent is needed.
+ * Notes: Objects shared between structures (eg- a String used as a key in two maps) are only counted once, in the
+ * 	first structure that reports them.  The IndexedObjects themselves (and the Strings they return, like unique keys)
+ * 	belong to the caller and are not counted.  ArrayLists are assumed to be at capacity, so their estimates are lower
+ * 	bounds.
+ */
+public class MemoryReport {
+	//--- constants ---//
+
+	// JVM object layout, assuming a 64-bit HotSpot JVM unless it tells us otherwise
+	static final int REFERENCE = vmFlag("UseCompressedOops", true) ? 4 : 8;
+	static final int HEADER = vmFlag("UseCompressedClassPointers", true) ? 12 : 16;
+	static final int ARRAY_HEADER = HEADER + 4;
+	static final int ALIGNMENT = vmInt("ObjectAlignmentInBytes", 8);
+	static final boolean COMPACT_STRINGS = vmFlag("CompactStrings", true);
+
+	//--- instance variables ---//
+
+	private Map<String,Long> bytesByStructure = new LinkedHashMap<String,Long>();
+
+	// objects already counted, so shared ones are only counted once
+	private IdentityHashMap<Object,Boolean> counted = new IdentityHashMap<Object,Boolean>();
+
+	//--- public methods ---//
+
+	// get the estimated bytes retained by each structure, in the order they were measured
+	public Map<String,Long> getBytesByStructure() {
+		return this.bytesByStructure;
+	}
+
+	// get the estimated bytes retained by the named structure (0 if it wasn't measured)
+	public long getBytes(String structure) {
+		Long bytes = this.bytesByStructure.get(structure);
+		return (bytes == null) ? 0 : bytes;
+	}
+
+	// get the estimated bytes retained by all structures together
+	public long getTotalBytes() {
+		long total = 0;
+		for (Long bytes : this.bytesByStructure.values()) {
+			total = total + bytes;
+		}
+		return total;
+	}
+
+	// one line per structure, then the total
+	public List<String> getLines() {
+		List<String> lines = new ArrayList<String>();
+		for (String structure : this.bytesByStructure.keySet()) {
+			lines.add(" - " + structure + ": " + this.bytesByStructure.get(structure) + " bytes");
+		}
+		lines.add(" - total: " + this.getTotalBytes() + " bytes");
+		return lines;
+	}
+
+	//--- package methods ---//
+
+	// record 'bytes' for the named structure (adding to any bytes already recorded for it)
+	void add(String structure, long bytes) {
+		this.bytesByStructure.put(structure, this.getBytes(structure) + bytes);
+	}
+
+	// Returns true the first time it's called for a given object (or for null, never), so callers can avoid counting
+	// shared objects twice.
+	boolean firstSighting(Object o) {
+		if ((o == null) || this.counted.containsKey(o)) {
+			return false;
+		}
+		this.counted.put(o, Boolean.TRUE);
+		return true;
+	}
+
+	// size of a String and its backing array, or 0 if it was already counted
+	long string(String s) {
+		if (!this.firstSighting(s)) {
+			return 0;
+		}
+		boolean latin1 = COMPACT_STRINGS;
+		for (int i = 0; latin1 && (i < s.length()); i++) {
+			latin1 = s.charAt(i) < 256;
+		}
+		// value, hash, coder, hashIsZero
+		return object(REFERENCE + 4 + 1 + 1) + byteArray(latin1 ? s.length() : 2 * s.length());
+	}
+
+	// size of a boxed Integer, or 0 if it was already counted or comes from Integer's cache
+	long integer(Integer i) {
+		if ((i >= -128) && (i <= 127)) {
+			return 0;
+		}
+		return this.firstSighting(i) ? object(4) : 0;
+	}
+
+	// size of an object with a header and 'fieldBytes' of fields
+	static long object(long fieldBytes) {
+		return align(HEADER + fieldBytes);
+	}
+
+	static long byteArray(long length) {
+		return align(ARRAY_HEADER + length);
+	}
+
+	static long intArray(long length) {
+		return align(ARRAY_HEADER + (4 * length));
+	}
+
+	static long longArray(long length) {
+		return align(ARRAY_HEADER + (8 * length));
+	}
+
+	static long charArray(long length) {
+		return align(ARRAY_HEADER + (2 * length));
+	}
+
+	static long referenceArray(long length) {
+		return align(ARRAY_HEADER + (REFERENCE * length));
+	}
+
+	// an ArrayList holding 'size' elements (not counting the elements themselves)
+	static long arrayList(int size) {
+		return object(4 + 4 + REFERENCE) + referenceArray(size);
+	}
+
+	// a fixed-size List from Arrays.asList() holding 'size' elements (not counting the elements themselves)
+	static long arraysAsList(int size) {
+		return object(REFERENCE) + referenceArray(size);
+	}
+
+	// a HashMap with 'size' entries (not counting the keys and values themselves)
+	static long hashMap(int size) {
+		int tableSize = 16;
+		while (tableSize * 0.75 < size) {
+			tableSize = tableSize * 2;
+		}
+		long map = object((4 * REFERENCE) + (4 * 4));		// table, entrySet, keySet, values; size, modCount, threshold, loadFactor
+		long nodes = size * object(4 + (3 * REFERENCE));	// hash; key, value, next
+		return map + referenceArray(tableSize) + nodes;
+	}
+
+	// a HashSet with 'size' elements (not counting the elements themselves)
+	static long hashSet(int size) {
+		return object(REFERENCE) + hashMap(size);
+	}
+
+	//--- private methods ---//
+
+	private static long align(long bytes) {
+		return ((bytes + ALIGNMENT - 1) / ALIGNMENT) * ALIGNMENT;
+	}
+
+	// Look up a boolean VM option from the HotSpot diagnostic bean, falling back on 'dflt' if we can't.
+	private static boolean vmFlag(String name, boolean dflt) {
+		String value = vmOption(name);
+		return (value == null) ? dflt : Boolean.parseBoolean(value);
+	}
+
+	// Look up an integer VM option from the HotSpot diagnostic bean, falling back on 'dflt' if we can't.
+	private static int vmInt(String name, int dflt) {
+		String value = vmOption(name);
+		try {
+			return (value == null) ? dflt : Integer.parseInt(value);
+		} catch (NumberFormatException e) {
+			return dflt;
+		}
+	}
+
+	private static String vmOption(String name) {
+		try {
+			com.sun.management.HotSpotDiagnosticMXBean bean =
+				ManagementFactory.getPlatformMXBean(com.sun.management.HotSpotDiagnosticMXBean.class);
+			return (bean == null) ? null : bean.getVMOption(name).getValue();
+		} catch (Throwable t) {
+			// not a HotSpot JVM, or the option doesn't exist in this version
+			return null;
+		}
+	}
+}
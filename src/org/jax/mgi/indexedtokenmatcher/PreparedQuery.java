@@ -0,0 +1,190 @@
+package org.jax.mgi.indexedtokenmatcher;
+
+import java.util.Arrays;
+import java.util.List;
+
+/* Is: a query string and its tokens, laid out in primitive arrays for comparison against IndexedResults or a
+ * 	ColumnarEntryStore
+ * Has: the lowercase query, its tokens concatenated into a byte array, and the leading bytes of each token packed
+ * 	into a long (as in ColumnarEntryStore)
+ * Notes: Instances can be reused for many queries; arrays only grow when a longer query comes along, so preparing
+ * 	a query allocates nothing once they are big enough.  Not thread-safe, so each thread needs its own.
+ */
+public class PreparedQuery {
+	//--- constants ---//
+
+	// Lowercasing ASCII a character at a time only matches String.toLowerCase() when the default locale lowercases
+	// 'I' to 'i' (not so for Turkish, for example).  If it doesn't, we always fall back on String.toLowerCase().
+	private static final boolean ASCII_LOWERCASE_SAFE = "I".toLowerCase().equals("i");
+
+	//--- instance variables ---//
+
+	char[] lower = new char[32];		// lowercase query string
+	int lowerLength = 0;
+
+	byte[] tokenBytes = new byte[32];	// query tokens, concatenated
+	int[] tokenStarts = new int[4];		// start of each token in 'tokenBytes'
+	int[] tokenLengths = new int[4];	// length of each token
+	long[] leads = new long[4];			// leading bytes of each token, packed as in ColumnarEntryStore
+	long[] masks = new long[4];			// mask covering the leading bytes of each token
+	int tokenCount = 0;
+
+	//--- public methods ---//
+
+	// Lay out 'query' and its tokens for comparison, lowercasing and tokenizing it the same way as search() does
+	// (with String.toLowerCase() and ITMUtils.tokenize()).  Allocates nothing for ASCII queries.
+	public void set(String query) {
+		int length = query.length();
+		boolean ascii = ASCII_LOWERCASE_SAFE;
+		for (int i = 0; ascii && (i < length); i++) {
+			ascii = query.charAt(i) < 128;
+		}
+		if (!ascii) {
+			// Non-ASCII characters can lowercase to more than one character (or to ASCII letters), so leave them
+			// to the standard library.
+			this.set(query.toLowerCase(), ITMUtils.tokenize(query));
+			return;
+		}
+
+		this.ensureLowerCapacity(length);
+		this.lowerLength = length;
+		this.tokenCount = 0;
+		int pos = 0;					// next free position in 'tokenBytes'
+		int tokenStart = -1;			// start of the token we're in, or -1 if between tokens
+
+		for (int i = 0; i < length; i++) {
+			char c = query.charAt(i);
+			if ((c >= 'A') && (c <= 'Z')) {
+				c = (char) (c + ('a' - 'A'));
+			}
+			this.lower[i] = c;
+
+			if (((c >= 'a') && (c <= 'z')) || ((c >= '0') && (c <= '9'))) {
+				if (tokenStart < 0) {
+					tokenStart = pos;
+				}
+				this.ensureTokenCapacity(this.tokenCount + 1, pos + 1);
+				this.tokenBytes[pos++] = (byte) c;
+			} else if (tokenStart >= 0) {
+				this.addToken(tokenStart, pos - tokenStart);
+				tokenStart = -1;
+			}
+		}
+		if (tokenStart >= 0) {
+			this.addToken(tokenStart, pos - tokenStart);
+		}
+
+		// ITMUtils.tokenize() returns a single empty token for a string with no alphanumerics, so we do too.
+		if (this.tokenCount == 0) {
+			this.ensureTokenCapacity(1, 0);
+			this.addToken(0, 0);
+		}
+	}
+
+	// Lay out 'queryLower' (the lowercased query) and its tokens for comparison.
+	public void set(String queryLower, List<String> queryTokens) {
+		this.ensureLowerCapacity(queryLower.length());
+		this.lowerLength = queryLower.length();
+		queryLower.getChars(0, this.lowerLength, this.lower, 0);
+
+		this.tokenCount = 0;
+		int pos = 0;
+		for (int i = 0; i < queryTokens.size(); i++) {
+			String token = queryTokens.get(i);
+			int length = token.length();
+			this.ensureTokenCapacity(this.tokenCount + 1, pos + length);
+			for (int c = 0; c < length; c++) {
+				this.tokenBytes[pos + c] = (byte) token.charAt(c);
+			}
+			this.addToken(pos, length);
+			pos = pos + length;
+		}
+	}
+
+	// number of tokens in the query
+	public int getTokenCount() {
+		return this.tokenCount;
+	}
+
+	// length of the token at position 'token'
+	public int getTokenLength(int token) {
+		return this.tokenLengths[token];
+	}
+
+	// Get the code (see ITMUtils.prefixCode) for the longest prefix of up to three characters of the token at
+	// position 'token', or -1 if the token is empty.
+	public int getBestPrefixCode(int token) {
+		int length = Math.min(this.tokenLengths[token], 3);
+		if (length == 0) {
+			return -1;
+		}
+		int start = this.tokenStarts[token];
+		int code = 0;
+		for (int i = 0; i < 3; i++) {
+			code = code * ITMUtils.PREFIX_RADIX;
+			if (i < length) {
+				code = code + ITMUtils.prefixDigit((char) this.tokenBytes[start + i]);
+			}
+		}
+		return code;
+	}
+
+	//--- package methods ---//
+
+	// pack the first ColumnarEntryStore.LEAD_BYTES characters of 'token' into a long, big-endian and zero-padded
+	static long packLead(String token) {
+		long lead = 0;
+		int n = Math.min(token.length(), ColumnarEntryStore.LEAD_BYTES);
+		for (int i = 0; i < n; i++) {
+			lead = lead | (((long) (token.charAt(i) & 0xff)) << (56 - (8 * i)));
+		}
+		return lead;
+	}
+
+	//--- private methods ---//
+
+	// record the token of 'length' bytes starting at 'start' in 'tokenBytes' (capacity must already be there)
+	private void addToken(int start, int length) {
+		long lead = 0;
+		int n = Math.min(length, ColumnarEntryStore.LEAD_BYTES);
+		for (int i = 0; i < n; i++) {
+			lead = lead | (((long) (this.tokenBytes[start + i] & 0xff)) << (56 - (8 * i)));
+		}
+		this.tokenStarts[this.tokenCount] = start;
+		this.tokenLengths[this.tokenCount] = length;
+		this.leads[this.tokenCount] = lead;
+		this.masks[this.tokenCount] = leadMask(length);
+		this.tokenCount++;
+	}
+
+	// mask selecting the first 'length' bytes of a packed lead (all of them if 'length' >= LEAD_BYTES)
+	private static long leadMask(int length) {
+		if (length <= 0) {
+			return 0L;
+		} else if (length >= ColumnarEntryStore.LEAD_BYTES) {
+			return -1L;
+		}
+		return -1L << (64 - (8 * length));
+	}
+
+	// grow 'lower' (if needed) to hold 'length' characters
+	private void ensureLowerCapacity(int length) {
+		if (this.lower.length < length) {
+			this.lower = new char[Math.max(length, this.lower.length * 2)];
+		}
+	}
+
+	// grow the token arrays (if needed) to hold 'count' tokens totalling 'bytes' characters
+	private void ensureTokenCapacity(int count, int bytes) {
+		if (this.tokenStarts.length < count) {
+			int size = Math.max(count, this.tokenStarts.length * 2);
+			this.tokenStarts = Arrays.copyOf(this.tokenStarts, size);
+			this.tokenLengths = Arrays.copyOf(this.tokenLengths, size);
+			this.leads = Arrays.copyOf(this.leads, size);
+			this.masks = Arrays.copyOf(this.masks, size);
+		}
+		if (this.tokenBytes.length < bytes) {
+			this.tokenBytes = Arrays.copyOf(this.tokenBytes, Math.max(bytes, this.tokenBytes.length * 2));
+		}
+	}
+}
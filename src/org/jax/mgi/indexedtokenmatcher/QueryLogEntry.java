@@ -0,0 +1,49 @@
+package org.jax.mgi.indexedtokenmatcher;
+
+/* Is: one search recorded by a QueryRecorder (or read back from its file)
+ * Has: when the search was made, the query and maximum result count it asked for, the number of results it got back,
+ * 	and how long it took.
+ */
+public class QueryLogEntry {
+	//--- instance variables ---//
+
+	long sequence;				// position in the recorder's ring of entries (-1 once read back from a file)
+	private long timestamp;		// milliseconds since the epoch
+	private String query;
+	private int maxCount;
+	private int resultCount;
+	private long latencyNanos;
+
+	//--- constructors ---//
+
+	public QueryLogEntry(long timestamp, String query, int maxCount, int resultCount, long latencyNanos) {
+		this.sequence = -1;
+		this.timestamp = timestamp;
+		this.query = query;
+		this.maxCount = maxCount;
+		this.resultCount = resultCount;
+		this.latencyNanos = latencyNanos;
+	}
+
+	//--- public methods ---//
+
+	public long getTimestamp() {
+		return this.timestamp;
+	}
+
+	public String getQuery() {
+		return this.query;
+	}
+
+	public int getMaxCount() {
+		return this.maxCount;
+	}
+
+	public int getResultCount() {
+		return this.resultCount;
+	}
+
+	public long getLatencyNanos() {
+		return this.latencyNanos;
+	}
+}
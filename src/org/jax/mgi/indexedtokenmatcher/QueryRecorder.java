@@ -0,0 +1,351 @@
+package org.jax.mgi.indexedtokenmatcher;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/* Is: an opt-in recorder of searches, for warming up new matchers and for regression testing (see QueryReplay)
+ * Has: a fixed-size ring of recent QueryLogEntries and the path of the file they are flushed to
+ * Does: records each search without locking (claiming a slot in the ring with one atomic increment), and appends the
+ * 	entries recorded since the last flush to the file, either on request or periodically on a background thread.
+ * 	If more searches are recorded between flushes than the ring holds, the oldest are dropped (and counted).
+ * Notes: The file starts with a short header, followed by one block per flush: the number of entries and the
+ * 	timestamp of the first, then for each entry its timestamp (as milliseconds after the previous one), latency
+ * 	(in microseconds), maximum result count, result count, and the query (as UTF-8).  Numbers are written as
+ * 	variable-length integers, so a typical entry takes about as many bytes as its query plus six.  Recording
+ * 	allocates one small object per search, so a search through a holder with a recorder is no longer garbage-free.
+ * 	Given a maximum file size, a flush that finds the file at or over it first renames it to PATH.1 (replacing any
+ * 	older one) and starts a new file, so the log never takes much more than twice that size on disk.  A block cut
+ * 	off partway (eg- by a crash during a flush) is ignored by readers, and cut from the file by the next recorder to
+ * 	flush to it, before it appends its own.
+ */
+public class QueryRecorder {
+	//--- constants ---//
+
+	private static final int MAGIC = 0x49544d51;		// "ITMQ"
+	private static final int VERSION = 1;
+
+	//--- instance variables ---//
+
+	private String path;
+
+	// ring of recorded entries; the entry with sequence number N goes in slot N % ring.length()
+	private AtomicReferenceArray<QueryLogEntry> ring;
+	private AtomicLong nextSequence = new AtomicLong();
+
+	// sequence number of the next entry to flush (only used within flush(), which is synchronized)
+	private long flushedSequence = 0;
+	private AtomicLong flushedCount = new AtomicLong();
+	private AtomicLong droppedCount = new AtomicLong();
+
+	// flushes periodically, if asked to
+	private ScheduledExecutorService flusher = null;
+
+	// size at which flush() rolls the file over to PATH.1 (0 to let it grow without limit)
+	private long maxFileBytes = 0;
+
+	// length of the file up to the end of its last complete block, or -1 if not yet known (only used within flush())
+	private long completeLength = -1;
+
+	//--- constructors ---//
+
+	// 'capacity' is the number of entries the ring holds between flushes
+	public QueryRecorder(String path, int capacity) {
+		this.path = path;
+		this.ring = new AtomicReferenceArray<QueryLogEntry>(Math.max(capacity, 1));
+	}
+
+	// as above, but also flush every 'flushIntervalMillis' on a background (daemon) thread
+	public QueryRecorder(String path, int capacity, long flushIntervalMillis) {
+		this(path, capacity);
+		this.flusher = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "QueryRecorder-flush");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		this.flusher.scheduleWithFixedDelay(new Runnable() {
+			public void run() {
+				try {
+					flush();
+				} catch (IOException e) {
+					// Keep recording; entries that don't fit in the ring by the next try are counted as dropped.
+				}
+			}
+		}, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+	}
+
+	//--- public methods ---//
+
+	// Record a search for 'query' that asked for 'maxCount' results, got 'resultCount', and took 'latencyNanos'.
+	// Safe to call from any number of threads at once.
+	public void record(String query, int maxCount, int resultCount, long latencyNanos) {
+		QueryLogEntry entry = new QueryLogEntry(System.currentTimeMillis(), query, maxCount, resultCount, latencyNanos);
+		entry.sequence = this.nextSequence.getAndIncrement();
+		this.ring.set((int) (entry.sequence % this.ring.length()), entry);
+	}
+
+	// Append the entries recorded since the last flush to the file, returning the number written.  Stops early at an
+	// entry whose slot has been claimed but not yet filled; that one is written by the next flush.
+	public synchronized int flush() throws IOException {
+		int capacity = this.ring.length();
+		long last = this.nextSequence.get();
+		if (last - this.flushedSequence > capacity) {
+			this.droppedCount.addAndGet(last - this.flushedSequence - capacity);
+			this.flushedSequence = last - capacity;
+		}
+
+		List<QueryLogEntry> entries = new ArrayList<QueryLogEntry>();
+		long sequence = this.flushedSequence;
+		while (sequence < last) {
+			QueryLogEntry entry = this.ring.get((int) (sequence % capacity));
+			if ((entry == null) || (entry.sequence < sequence)) {
+				break;		// still being recorded
+			} else if (entry.sequence > sequence) {
+				this.droppedCount.incrementAndGet();		// overwritten while we were flushing
+			} else {
+				entries.add(entry);
+			}
+			sequence++;
+		}
+		this.flushedSequence = sequence;
+		if (entries.isEmpty()) {
+			return 0;
+		}
+
+		File file = new File(this.path);
+		if ((this.maxFileBytes > 0) && (file.length() >= this.maxFileBytes)) {
+			File rolled = new File(this.path + ".1");
+			if ((rolled.exists() && !rolled.delete()) || !file.renameTo(rolled)) {
+				throw new IOException("could not roll " + this.path + " over to " + rolled.getPath());
+			}
+			this.completeLength = 0;
+		}
+		if (this.completeLength < 0) {
+			// First flush (or the last one failed), so cut off any block left half-written; otherwise readers would
+			// stop there and never see the blocks we append.
+			this.completeLength = file.exists() ? read(this.path, null, 0) : 0;
+			if (file.length() > this.completeLength) {
+				RandomAccessFile truncator = new RandomAccessFile(file, "rw");
+				try {
+					truncator.setLength(this.completeLength);
+				} finally {
+					truncator.close();
+				}
+			}
+		}
+		boolean needHeader = (this.completeLength == 0);
+		this.completeLength = -1;		// until the block is completely written
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)));
+		try {
+			if (needHeader) {
+				out.writeInt(MAGIC);
+				out.writeByte(VERSION);
+			}
+			writeVarLong(out, entries.size());
+			long previousTimestamp = entries.get(0).getTimestamp();
+			out.writeLong(previousTimestamp);
+			for (QueryLogEntry entry : entries) {
+				// timestamps can step backward if the clock is adjusted; don't let that make a negative delta
+				writeVarLong(out, Math.max(entry.getTimestamp() - previousTimestamp, 0));
+				previousTimestamp = Math.max(entry.getTimestamp(), previousTimestamp);
+				writeVarLong(out, entry.getLatencyNanos() / 1000);
+				writeVarLong(out, Math.max(entry.getMaxCount(), 0));
+				writeVarLong(out, entry.getResultCount());
+				byte[] query = entry.getQuery().getBytes("UTF-8");
+				writeVarLong(out, query.length);
+				out.write(query);
+			}
+		} finally {
+			out.close();
+		}
+		this.completeLength = file.length();
+		this.flushedCount.addAndGet(entries.size());
+		return entries.size();
+	}
+
+	// Stop any periodic flushing, then flush whatever is left.
+	public void close() throws IOException {
+		if (this.flusher != null) {
+			this.flusher.shutdown();
+			try {
+				this.flusher.awaitTermination(10, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		this.flush();
+	}
+
+	// number of searches recorded so far
+	public long getRecordedCount() {
+		return this.nextSequence.get();
+	}
+
+	// number of entries written to the file so far
+	public long getFlushedCount() {
+		return this.flushedCount.get();
+	}
+
+	// number of entries lost because the ring filled up between flushes
+	public long getDroppedCount() {
+		return this.droppedCount.get();
+	}
+
+	public String getPath() {
+		return this.path;
+	}
+
+	// Roll the file over to PATH.1 once it reaches 'maxFileBytes' (see the Notes above), or never if 0.
+	public synchronized void setMaxFileBytes(long maxFileBytes) {
+		this.maxFileBytes = maxFileBytes;
+	}
+
+	// Read all entries from a file written by a QueryRecorder, in the order they were flushed.  Latencies come back
+	// rounded down to the microsecond.  (Entries already rolled over to PATH.1 are not included, nor are those of a
+	// block cut off partway.)
+	public static List<QueryLogEntry> read(String path) throws IOException {
+		ArrayDeque<QueryLogEntry> entries = new ArrayDeque<QueryLogEntry>();
+		read(path, entries, Integer.MAX_VALUE);
+		return new ArrayList<QueryLogEntry>(entries);
+	}
+
+	// Read the most recent 'maxEntries' entries written to 'path' by a QueryRecorder, including any rolled over to
+	// PATH.1, in the order they were flushed.  Missing and empty files count as having no entries.  Only that many
+	// entries are held at once, however long the files are.
+	public static List<QueryLogEntry> readTail(String path, int maxEntries) throws IOException {
+		ArrayDeque<QueryLogEntry> entries = new ArrayDeque<QueryLogEntry>();
+		for (String file : new String[] { path + ".1", path }) {
+			if ((maxEntries > 0) && (new File(file).length() > 0)) {
+				read(file, entries, maxEntries);
+			}
+		}
+		return new ArrayList<QueryLogEntry>(entries);
+	}
+
+	//--- private methods ---//
+
+	// Read the entries from the file at 'path', adding each to the end of 'entries' (unless it's null) and dropping from
+	// the front any beyond the last 'maxEntries'.  Stops at a block cut off partway, leaving out its entries, and
+	// returns the length of the file up to there.
+	private static long read(String path, ArrayDeque<QueryLogEntry> entries, int maxEntries) throws IOException {
+		CountingInputStream counter = new CountingInputStream(new BufferedInputStream(new FileInputStream(path)));
+		DataInputStream in = new DataInputStream(counter);
+		List<QueryLogEntry> block = new ArrayList<QueryLogEntry>();
+		long completeLength = 0;
+		try {
+			try {
+				if ((in.readInt() != MAGIC) || (in.readByte() != VERSION)) {
+					throw new IOException(path + " is not a query log (or is from a different version)");
+				}
+			} catch (EOFException e) {
+				return 0;		// even the header was cut off
+			}
+			completeLength = counter.count;
+			while (true) {
+				block.clear();
+				try {
+					long blockSize = readVarLong(in);
+					long timestamp = in.readLong();
+					for (long i = 0; i < blockSize; i++) {
+						timestamp = timestamp + readVarLong(in);
+						long latencyNanos = readVarLong(in) * 1000;
+						int maxCount = (int) readVarLong(in);
+						int resultCount = (int) readVarLong(in);
+						byte[] query = new byte[(int) readVarLong(in)];
+						in.readFully(query);
+						if (entries != null) {
+							block.add(new QueryLogEntry(timestamp, new String(query, "UTF-8"), maxCount, resultCount,
+								latencyNanos));
+						}
+					}
+				} catch (EOFException e) {
+					break;		// no more blocks, or only part of one
+				}
+				completeLength = counter.count;
+				for (QueryLogEntry entry : block) {
+					if (entries.size() == maxEntries) {
+						entries.removeFirst();
+					}
+					entries.addLast(entry);
+				}
+			}
+		} finally {
+			in.close();
+		}
+		return completeLength;
+	}
+
+	// write a non-negative number seven bits at a time, low bits first, setting the top bit of all but the last byte
+	private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+		while ((value & ~0x7fL) != 0) {
+			out.writeByte((int) ((value & 0x7f) | 0x80));
+			value = value >>> 7;
+		}
+		out.writeByte((int) value);
+	}
+
+	private static long readVarLong(DataInputStream in) throws IOException {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift = shift + 7) {
+			int b = in.readUnsignedByte();
+			value = value | ((long) (b & 0x7f) << shift);
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IOException("malformed number in query log");
+	}
+
+	//--- private inner classes ---//
+
+	// counts the bytes read through it, so read() can tell where the last complete block ends
+	private static class CountingInputStream extends FilterInputStream {
+		long count = 0;
+
+		CountingInputStream(InputStream in) {
+			super(in);
+		}
+
+		public int read() throws IOException {
+			int b = super.read();
+			if (b >= 0) {
+				this.count++;
+			}
+			return b;
+		}
+
+		public int read(byte[] b, int off, int len) throws IOException {
+			int n = super.read(b, off, len);
+			if (n > 0) {
+				this.count = this.count + n;
+			}
+			return n;
+		}
+
+		public long skip(long n) throws IOException {
+			long skipped = super.skip(n);
+			this.count = this.count + skipped;
+			return skipped;
+		}
+	}
+}
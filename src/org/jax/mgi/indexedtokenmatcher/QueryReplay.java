@@ -0,0 +1,103 @@
+package org.jax.mgi.indexedtokenmatcher;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/* Is: a set of helpers for replaying searches recorded by a QueryRecorder
+ * Does: replays them against a matcher (to warm it up before it takes traffic, or to time it), and compares the
+ * 	results two matchers give for them (eg- the current index and a rebuilt one), as a regression test.
+ */
+public class QueryReplay {
+	//--- public methods ---//
+
+	// Run each entry's search against 'matcher', asking for the same number of results as the original, and return the
+	// time each one took (in nanoseconds, in the same order as 'entries').
+	public static <T> long[] replay(IndexedTokenMatcher<T> matcher, List<QueryLogEntry> entries) {
+		long[] latencies = new long[entries.size()];
+		for (int i = 0; i < entries.size(); i++) {
+			QueryLogEntry entry = entries.get(i);
+			long start = System.nanoTime();
+			matcher.search(entry.getQuery(), entry.getMaxCount());
+			latencies[i] = System.nanoTime() - start;
+		}
+		return latencies;
+	}
+
+	// As above, but through the zero-garbage search (see IndexedTokenMatcher), with 'context' as working storage.
+	public static <T> long[] replay(IndexedTokenMatcher<T> matcher, List<QueryLogEntry> entries, SearchContext context) {
+		DiscardingSink<T> sink = new DiscardingSink<T>();
+		long[] latencies = new long[entries.size()];
+		for (int i = 0; i < entries.size(); i++) {
+			QueryLogEntry entry = entries.get(i);
+			long start = System.nanoTime();
+			matcher.search(entry.getQuery(), entry.getMaxCount(), context, sink);
+			latencies[i] = System.nanoTime() - start;
+		}
+		return latencies;
+	}
+
+	// Compare the results from 'before' and 'after' for each distinct search in 'entries', returning a description of
+	// each search whose results differ (stopping after 'maxDifferences').  Results are compared by unique key and
+	// display value, in order, so a change in ranking counts as a difference.
+	public static <T> List<String> diff(IndexedTokenMatcher<T> before, IndexedTokenMatcher<T> after,
+			List<QueryLogEntry> entries, int maxDifferences) {
+		List<String> differences = new ArrayList<String>();
+		Set<String> compared = new LinkedHashSet<String>();
+		for (QueryLogEntry entry : entries) {
+			if (differences.size() >= maxDifferences) {
+				break;
+			}
+			if (!compared.add(entry.getMaxCount() + "\t" + entry.getQuery())) {
+				continue;		// already compared this search
+			}
+
+			List<String> beforeResults = describe(before.search(entry.getQuery(), entry.getMaxCount()));
+			List<String> afterResults = describe(after.search(entry.getQuery(), entry.getMaxCount()));
+			if (beforeResults.equals(afterResults)) {
+				continue;
+			}
+			int i = 0;
+			while ((i < beforeResults.size()) && (i < afterResults.size())
+					&& beforeResults.get(i).equals(afterResults.get(i))) {
+				i++;
+			}
+			differences.add("\"" + entry.getQuery() + "\" (max " + entry.getMaxCount() + "): "
+				+ beforeResults.size() + " results before, " + afterResults.size() + " after; first difference at "
+				+ i + ": " + (i < beforeResults.size() ? beforeResults.get(i) : "(none)") + " became "
+				+ (i < afterResults.size() ? afterResults.get(i) : "(none)"));
+		}
+		return differences;
+	}
+
+	// Get the given percentile (0-100) of 'latencies', which this sorts in place.
+	public static long percentile(long[] latencies, double percentile) {
+		if (latencies.length == 0) {
+			return 0;
+		}
+		Arrays.sort(latencies);
+		int i = (int) Math.ceil((percentile / 100.0) * latencies.length) - 1;
+		return latencies[Math.min(Math.max(i, 0), latencies.length - 1)];
+	}
+
+	//--- private methods ---//
+
+	// one string per result, identifying both the object and the term or synonym that matched
+	private static <T> List<String> describe(List<IndexedResult<T>> results) {
+		List<String> descriptions = new ArrayList<String>(results.size());
+		for (IndexedResult<T> result : results) {
+			descriptions.add(result.getIndexedObject().getUniqueKey() + " \"" + result.getDisplayValue() + "\"");
+		}
+		return descriptions;
+	}
+
+	//--- private inner classes ---//
+
+	// a ResultSink that ignores the results passed to it
+	private static class DiscardingSink<T> implements ResultSink<T> {
+		public void accept(IndexedResult<T> result, int matchType) {
+		}
+	}
+}
@@ -0,0 +1,10 @@
+package org.jax.mgi.indexedtokenmatcher;
+
+/* Is: a receiver for the results of a search, passed to the zero-garbage version of IndexedTokenMatcher.search()
+ * Notes: Results are delivered in priority order (the same order the List-returning search() would return them),
+ * 	so an implementation can simply copy them into its own reusable storage.
+ */
+public interface ResultSink<T> {
+	// receive the next matching result, along with its match type (one of the flags defined in IndexedResult)
+	void accept(IndexedResult<T> result, int matchType);
+}
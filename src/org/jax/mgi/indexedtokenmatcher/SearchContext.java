@@ -0,0 +1,67 @@
+package org.jax.mgi.indexedtokenmatcher;
+
+import java.util.Arrays;
+
+/* Is: reusable working storage for the zero-garbage version of IndexedTokenMatcher.search()
+ * Has: a PreparedQuery, one growable int array of 'searchableTerms' indexes per match type (the bins), a bitset
+ * 	used to merge candidate lists for 1- and 2-character prefixes, and a bitset of entries already matched (used
+ * 	to keep them out of the infix bin).
+ * Notes: Not thread-safe; keep one per thread (eg- in a ThreadLocal).  Storage grows as needed and is never shrunk,
+ * 	so after a few searches a context allocates nothing.  A context can be used with any number of matchers.
+ */
+public class SearchContext {
+	//--- instance variables ---//
+
+	PreparedQuery query = new PreparedQuery();
+
+	// bins[matchType] holds indexes of the results with that match type, in order; binSizes[matchType] is its size
+	int[][] bins = new int[IndexedResult.INFIX_MATCH + 1][];
+	int[] binSizes = new int[IndexedResult.INFIX_MATCH + 1];
+
+	// one bit per entry in 'searchableTerms' for each of these; always left cleared between searches
+	long[] seen = new long[0];
+	long[] matched = new long[0];
+
+	//--- constructors ---//
+
+	public SearchContext() {
+		for (int i = 0; i < this.bins.length; i++) {
+			this.bins[i] = new int[16];
+		}
+	}
+
+	//--- package methods ---//
+
+	// empty all the bins
+	void clearBins() {
+		Arrays.fill(this.binSizes, 0);
+	}
+
+	// add the 'searchableTerms' index to the bin for 'matchType'
+	void addToBin(int matchType, int index) {
+		int size = this.binSizes[matchType];
+		if (size == this.bins[matchType].length) {
+			this.bins[matchType] = Arrays.copyOf(this.bins[matchType], size * 2);
+		}
+		this.bins[matchType][size] = index;
+		this.binSizes[matchType] = size + 1;
+	}
+
+	// get the 'seen' bitset, big enough for 'entryCount' entries
+	long[] getSeen(int entryCount) {
+		int words = (entryCount + 63) >>> 6;
+		if (this.seen.length < words) {
+			this.seen = new long[words];
+		}
+		return this.seen;
+	}
+
+	// get the 'matched' bitset, big enough for 'entryCount' entries
+	long[] getMatched(int entryCount) {
+		int words = (entryCount + 63) >>> 6;
+		if (this.matched.length < words) {
+			this.matched = new long[words];
+		}
+		return this.matched;
+	}
+}
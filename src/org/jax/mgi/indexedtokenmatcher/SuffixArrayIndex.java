@@ -0,0 +1,227 @@
+package org.jax.mgi.indexedtokenmatcher;
+
+import java.util.Arrays;
+import java.util.List;
+
+/* Is: a suffix array over the lowercase strings of an IndexedTokenMatcher's 'searchableTerms'
+ * Has: the lowercase strings concatenated into one char array (each followed by a separator), the start of each
+ * 	entry's string in it, and the sorted array of every suffix's starting position.
+ * Does: finds every entry whose lowercase string contains a given substring, in time logarithmic in the size of the
+ * 	text (plus time proportional to the number of occurrences found).  Used for infix matching, so "blast" can
+ * 	find "trophoblast".
+ * Notes: Suffixes are compared only up to the end of their own string (the separator sorts before any character),
+ * 	with ties broken by position, so suffixes starting with a given pattern form one contiguous range.  Costs
+ * 	about six bytes per character of text.  Entries are addressed by their index in 'searchableTerms', so the
+ * 	index must be built after sorting.
+ */
+public class SuffixArrayIndex {
+	//--- constants ---//
+
+	// marks the end of each entry's string in 'text'
+	private static final char SEPARATOR = '\u0000';
+
+	// below this many suffixes, sort by insertion rather than partitioning
+	private static final int INSERTION_SORT_SIZE = 16;
+
+	//--- instance variables ---//
+
+	private char[] text;			// lowercase strings of all entries, each followed by SEPARATOR
+	private int[] entryStarts;		// entry i's string starts at text[entryStarts[i]]
+	private int[] suffixes;			// starting positions in 'text' of all suffixes (excluding separators), sorted
+
+	//--- constructors ---//
+
+	public <T> SuffixArrayIndex(List<IndexedResult<T>> searchableTerms) {
+		int entryCount = searchableTerms.size();
+		int textLength = 0;
+		for (IndexedResult<T> indexedResult : searchableTerms) {
+			textLength = textLength + indexedResult.getLowerString().length() + 1;
+		}
+
+		this.text = new char[textLength];
+		this.entryStarts = new int[entryCount];
+		this.suffixes = new int[textLength - entryCount];
+		int pos = 0;
+		int suffixCount = 0;
+		for (int i = 0; i < entryCount; i++) {
+			String lower = searchableTerms.get(i).getLowerString();
+			this.entryStarts[i] = pos;
+			lower.getChars(0, lower.length(), this.text, pos);
+			for (int c = 0; c < lower.length(); c++) {
+				this.suffixes[suffixCount++] = pos + c;
+			}
+			pos = pos + lower.length();
+			this.text[pos++] = SEPARATOR;
+		}
+
+		this.sort(0, this.suffixes.length, 0);
+	}
+
+	//--- public methods ---//
+
+	// Set the bit in 'entries' (a bitset over 'searchableTerms') for every entry whose lowercase string contains the
+	// first 'length' characters of 'pattern', except those whose bit is set in 'excluded' (which may be null).
+	// Returns the number of bits newly set.
+	public int markEntries(char[] pattern, int length, long[] entries, long[] excluded) {
+		if (length == 0) {
+			return 0;
+		}
+		for (int i = 0; i < length; i++) {
+			if (pattern[i] == SEPARATOR) {
+				return 0;
+			}
+		}
+
+		int marked = 0;
+		int last = this.upperBound(pattern, length);
+		for (int rank = this.lowerBound(pattern, length); rank < last; rank++) {
+			int entry = this.entryAt(this.suffixes[rank]);
+			long bit = 1L << entry;
+			int word = entry >>> 6;
+			if (((entries[word] & bit) == 0) && ((excluded == null) || ((excluded[word] & bit) == 0))) {
+				entries[word] |= bit;
+				marked++;
+			}
+		}
+		return marked;
+	}
+
+	// estimated bytes of heap retained by this index (see MemoryReport)
+	public long getMemorySize() {
+		return MemoryReport.object(3 * MemoryReport.REFERENCE) + MemoryReport.charArray(this.text.length)
+			+ MemoryReport.intArray(this.entryStarts.length) + MemoryReport.intArray(this.suffixes.length);
+	}
+
+	//--- private methods ---//
+
+	// character 'depth' positions into the suffix starting at 'pos', or -1 once we reach the end of its string
+	private int key(int pos, int depth) {
+		char c = this.text[pos + depth];
+		return (c == SEPARATOR) ? -1 : c;
+	}
+
+	// index of the entry whose string contains text position 'pos'
+	private int entryAt(int pos) {
+		int i = Arrays.binarySearch(this.entryStarts, pos);
+		return (i >= 0) ? i : (-i - 2);
+	}
+
+	// Compare 'pattern' with the first characters of the suffix at 'pos': negative if the pattern sorts first,
+	// positive if it sorts after, and zero if the suffix starts with the pattern.
+	private int comparePattern(char[] pattern, int length, int pos) {
+		for (int i = 0; i < length; i++) {
+			int k = this.key(pos, i);
+			if (k < 0) {
+				return 1;		// suffix ended first, so it sorts before the pattern
+			} else if (pattern[i] != k) {
+				return pattern[i] - k;
+			}
+		}
+		return 0;
+	}
+
+	// rank of the first suffix that starts with (or sorts after) the pattern
+	private int lowerBound(char[] pattern, int length) {
+		int lo = 0;
+		int hi = this.suffixes.length;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (this.comparePattern(pattern, length, this.suffixes[mid]) > 0) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+
+	// rank of the first suffix that sorts after every suffix starting with the pattern
+	private int upperBound(char[] pattern, int length) {
+		int lo = 0;
+		int hi = this.suffixes.length;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (this.comparePattern(pattern, length, this.suffixes[mid]) >= 0) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+
+	// Sort suffixes[lo..hi), all of which share their first 'depth' characters, using a three-way radix quicksort
+	// (Bentley & Sedgewick) on the character at 'depth'.
+	private void sort(int lo, int hi, int depth) {
+		while (hi - lo > 1) {
+			if (hi - lo < INSERTION_SORT_SIZE) {
+				this.insertionSort(lo, hi, depth);
+				return;
+			}
+
+			int pivot = this.medianKey(lo, hi, depth);
+			int lt = lo;
+			int gt = hi - 1;
+			int i = lo;
+			while (i <= gt) {
+				int k = this.key(this.suffixes[i], depth);
+				if (k < pivot) {
+					this.swap(lt++, i++);
+				} else if (k > pivot) {
+					this.swap(i, gt--);
+				} else {
+					i++;
+				}
+			}
+
+			// suffixes[lo..lt) < pivot, suffixes[lt..gt] == pivot, suffixes(gt..hi) > pivot
+			this.sort(lo, lt, depth);
+			this.sort(gt + 1, hi, depth);
+			if (pivot < 0) {
+				// These suffixes all end here, so they're equal; order them by position.
+				Arrays.sort(this.suffixes, lt, gt + 1);
+				return;
+			}
+			lo = lt;
+			hi = gt + 1;
+			depth++;
+		}
+	}
+
+	// median of the keys at 'depth' of the first, middle, and last suffixes in suffixes[lo..hi)
+	private int medianKey(int lo, int hi, int depth) {
+		int a = this.key(this.suffixes[lo], depth);
+		int b = this.key(this.suffixes[(lo + hi) >>> 1], depth);
+		int c = this.key(this.suffixes[hi - 1], depth);
+		return Math.max(Math.min(a, b), Math.min(Math.max(a, b), c));
+	}
+
+	private void insertionSort(int lo, int hi, int depth) {
+		for (int i = lo + 1; i < hi; i++) {
+			for (int j = i; (j > lo) && (this.compareSuffixes(this.suffixes[j - 1], this.suffixes[j], depth) > 0); j--) {
+				this.swap(j - 1, j);
+			}
+		}
+	}
+
+	// compare the suffixes at 'a' and 'b' (which share their first 'depth' characters) to the ends of their strings,
+	// breaking ties by position
+	private int compareSuffixes(int a, int b, int depth) {
+		while (true) {
+			int ka = this.key(a, depth);
+			int kb = this.key(b, depth);
+			if (ka != kb) {
+				return ka - kb;
+			} else if (ka < 0) {
+				return a - b;
+			}
+			depth++;
+		}
+	}
+
+	private void swap(int i, int j) {
+		int t = this.suffixes[i];
+		this.suffixes[i] = this.suffixes[j];
+		this.suffixes[j] = t;
+	}
+}
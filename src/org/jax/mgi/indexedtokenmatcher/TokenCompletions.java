@@ -0,0 +1,202 @@
+package org.jax.mgi.indexedtokenmatcher;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/* Is: a precomputed set of token completions for an IndexedTokenMatcher's 'searchableTerms'
+ * Has: every distinct token in alphabetical order, its rank (by the number of entries containing it, most first, then
+ * 	by the first entry containing it), and a list of the best-ranked 'topCount' tokens for every prefix shared by more
+ * 	than 'topCount' tokens.
+ * Does: returns the best-ranked distinct tokens that begin with a given prefix (eg- "theil" gives "theiler"), without
+ * 	running a search.
+ * Notes: A prefix shared by more than 'topCount' tokens is answered from its precomputed list.  Any other prefix is
+ * 	shared by at most 'topCount' tokens, which sit next to each other in the alphabetical list, so those are just
+ * 	ordered by rank.  Either way, a lookup costs a binary search plus work bounded by 'topCount', no matter how big
+ * 	the vocabulary is.  Entries are addressed by their index in 'searchableTerms', so these must be built after sorting.
+ */
+public class TokenCompletions {
+	//--- instance variables ---//
+
+	private int topCount;				// number of completions precomputed per prefix
+	private String[] tokens;			// distinct tokens, in alphabetical order
+	private int[] frequencies;			// frequencies[i] is the number of entries that contain tokens[i]
+	private int[] ranks;				// ranks[i] is the rank of tokens[i] (0 = best)
+
+	// For each prefix shared by more than 'topCount' tokens, the indexes (in 'tokens') of the best-ranked 'topCount',
+	// best first.
+	private Map<String,int[]> topByPrefix = new HashMap<String,int[]>();
+
+	//--- constructors ---//
+
+	public <T> TokenCompletions(List<IndexedResult<T>> searchableTerms, int topCount) {
+		this.topCount = Math.max(topCount, 1);
+
+		// Count the entries containing each token (once per entry, even if it has the token twice), noting the first.
+		Map<String,int[]> countAndFirst = new HashMap<String,int[]>();
+		for (int i = 0; i < searchableTerms.size(); i++) {
+			for (String token : searchableTerms.get(i).getTokens()) {
+				if (token.length() == 0) {
+					continue;
+				}
+				int[] data = countAndFirst.get(token);
+				if (data == null) {
+					countAndFirst.put(token, new int[] { 1, i, i });	// count, first entry, last entry
+				} else if (data[2] != i) {
+					data[0]++;
+					data[2] = i;
+				}
+			}
+		}
+
+		List<String> sortedTokens = new ArrayList<String>(countAndFirst.keySet());
+		Collections.sort(sortedTokens);
+		int tokenCount = sortedTokens.size();
+		this.tokens = sortedTokens.toArray(new String[tokenCount]);
+		this.frequencies = new int[tokenCount];
+		long[] rankKeys = new long[tokenCount];
+		for (int t = 0; t < tokenCount; t++) {
+			int[] data = countAndFirst.get(this.tokens[t]);
+			this.frequencies[t] = data[0];
+			// sorts by count (descending), then first entry (ascending); the two fit in 31 bits each
+			rankKeys[t] = ((long) (Integer.MAX_VALUE - data[0]) << 31) | data[1];
+		}
+
+		// Rank the tokens.  Tokens first seen in the same entry can tie on both count and first entry, so break ties
+		// alphabetically.
+		long[][] keyed = new long[tokenCount][];
+		for (int t = 0; t < tokenCount; t++) {
+			keyed[t] = new long[] { rankKeys[t], t };
+		}
+		Arrays.sort(keyed, new Comparator<long[]>() {
+			public int compare(long[] a, long[] b) {
+				if (a[0] != b[0]) {
+					return (a[0] < b[0]) ? -1 : 1;
+				}
+				return (a[1] < b[1]) ? -1 : ((a[1] == b[1]) ? 0 : 1);
+			}
+		});
+		this.ranks = new int[tokenCount];
+		for (int r = 0; r < tokenCount; r++) {
+			this.ranks[(int) keyed[r][1]] = r;
+		}
+
+		// Precompute the lists for prefixes shared by more than 'topCount' tokens.  Each prefix is handled at the first
+		// token that has it, where its tokens form the range [t, end).
+		for (int t = 0; t < tokenCount; t++) {
+			String token = this.tokens[t];
+			for (int length = 1; length <= token.length(); length++) {
+				if ((t > 0) && this.tokens[t - 1].startsWith(token.substring(0, length))) {
+					continue;		// not the first token with this prefix
+				}
+				String prefix = token.substring(0, length);
+				int end = this.rangeEnd(prefix, t);
+				if (end - t <= this.topCount) {
+					break;			// nor will any longer prefix of this token be shared by more than 'topCount'
+				}
+				this.topByPrefix.put(prefix, this.best(t, end, this.topCount));
+			}
+		}
+	}
+
+	//--- public methods ---//
+
+	// Get up to 'maxCount' distinct tokens starting with 'prefix' (which should be lowercase and alphanumeric), best
+	// ranked first.  At most 'topCount' are returned, no matter how big 'maxCount' is.
+	public List<String> complete(String prefix, int maxCount) {
+		List<String> completions = new ArrayList<String>();
+		if ((prefix.length() == 0) || (maxCount <= 0)) {
+			return completions;
+		}
+
+		int[] best = this.topByPrefix.get(prefix);
+		if (best == null) {
+			int start = this.rangeStart(prefix);
+			int end = this.rangeEnd(prefix, start);
+			if (end - start > this.topCount) {
+				// can't happen (such prefixes all have precomputed lists), but keep the lookup bounded regardless
+				end = start + this.topCount;
+			}
+			best = this.best(start, end, end - start);
+		}
+		for (int i = 0; (i < best.length) && (i < maxCount); i++) {
+			completions.add(this.tokens[best[i]]);
+		}
+		return completions;
+	}
+
+	// get the number of entries that contain 'token' (0 if none do)
+	public int getFrequency(String token) {
+		int t = Arrays.binarySearch(this.tokens, token);
+		return (t >= 0) ? this.frequencies[t] : 0;
+	}
+
+	public int getTopCount() {
+		return this.topCount;
+	}
+
+	//--- package methods ---//
+
+	// estimated bytes of heap retained by these completions (see MemoryReport); tokens already counted by the
+	// 'report' (eg- in the token lists of 'searchableTerms') are not counted again
+	long getMemorySize(MemoryReport report) {
+		long bytes = MemoryReport.object(4 + (4 * MemoryReport.REFERENCE)) + MemoryReport.referenceArray(this.tokens.length)
+			+ (2 * MemoryReport.intArray(this.tokens.length));
+		for (String token : this.tokens) {
+			bytes = bytes + report.string(token);
+		}
+		bytes = bytes + MemoryReport.hashMap(this.topByPrefix.size());
+		for (String prefix : this.topByPrefix.keySet()) {
+			bytes = bytes + report.string(prefix) + MemoryReport.intArray(this.topByPrefix.get(prefix).length);
+		}
+		return bytes;
+	}
+
+	//--- private methods ---//
+
+	// index of the first token that is >= 'prefix'
+	private int rangeStart(String prefix) {
+		int t = Arrays.binarySearch(this.tokens, prefix);
+		return (t >= 0) ? t : (-t - 1);
+	}
+
+	// index just past the last token (at or after 'start') that starts with 'prefix'
+	private int rangeEnd(String prefix, int start) {
+		int lo = start;
+		int hi = this.tokens.length;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (this.tokens[mid].startsWith(prefix)) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+
+	// the indexes of the best-ranked 'count' tokens in tokens[start..end), best first
+	private int[] best(int start, int end, int count) {
+		count = Math.min(count, end - start);
+		int[] best = new int[count];
+		int size = 0;
+		for (int t = start; t < end; t++) {
+			int rank = this.ranks[t];
+			if ((size == count) && (rank > this.ranks[best[size - 1]])) {
+				continue;
+			}
+			// insert 't' in rank order, dropping the worst if we're full
+			int i = (size < count) ? size++ : size - 1;
+			while ((i > 0) && (this.ranks[best[i - 1]] > rank)) {
+				best[i] = best[i - 1];
+				i--;
+			}
+			best[i] = t;
+		}
+		return best;
+	}
+}
@@ -1,6 +1,7 @@
 package org.jax.mgi.indexedtokenmatcher;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
 
@@ -42,8 +43,316 @@ public class IndexedTokenManagerTests {
 		Assert.assertEquals(0,  itm.search("mortgage").size());
 	}
 	
+	@Test
+	public void columnarStoreMatchesDefault() {
+		ITMConfig config = new ITMConfig();
+		config.setColumnarStore(true);
+		IndexedTokenMatcher<FauxItem> itm = getPopulatedITM();
+		IndexedTokenMatcher<FauxItem> columnar = getPopulatedITM(config);
+		
+		// includes tokens longer than the eight bytes packed into each lead
+		String[] queries = { "house", "hou", "h", "ro", "roof mat", "smokesta", "smokestack", "smokestacks",
+			"kitchen cab", "cab kit", "cellar d", "d", "Living Room", "mortgage" };
+		for (String query : queries) {
+			Assert.assertEquals(query, itm.search(query).size(), columnar.search(query).size());
+			for (int i = 0; i < itm.search(query).size(); i++) {
+				Assert.assertEquals(query, itm.search(query).get(i).getDisplayValue(),
+					columnar.search(query).get(i).getDisplayValue());
+			}
+		}
+	}
+	
+	@Test
+	public void sinkSearchMatchesListSearch() {
+		ITMConfig config = new ITMConfig();
+		config.setColumnarStore(true);
+		List<IndexedTokenMatcher<FauxItem>> matchers = new ArrayList<IndexedTokenMatcher<FauxItem>>();
+		matchers.add(getPopulatedITM());
+		matchers.add(getPopulatedITM(config));
+		
+		SearchContext context = new SearchContext();
+		String[] queries = { "house", "hou", "h", "r", "ro", "roof mat", "smokestack", "kitchen cab", "cab kit",
+			"cellar d", "d", "Living Room", "LIV", "mortgage", "", "  ", "home-made", "caf\u00e9" };
+		for (IndexedTokenMatcher<FauxItem> itm : matchers) {
+			for (String query : queries) {
+				for (int maxCount : new int[] { 1, 2, 200 }) {
+					List<IndexedResult<FauxItem>> expected = itm.search(query, maxCount);
+					CollectingSink sink = new CollectingSink();
+					Assert.assertEquals(query, expected.size(), itm.search(query, maxCount, context, sink));
+					Assert.assertEquals(query, expected, sink.results);
+					for (int i = 0; i < expected.size(); i++) {
+						Assert.assertEquals(query, expected.get(i).getMatchType(query.toLowerCase(), ITMUtils.tokenize(query)),
+							(long) sink.matchTypes.get(i));
+					}
+				}
+			}
+		}
+	}
+	
+	@Test
+	public void sinkSearchAllocatesNothing() {
+		java.lang.management.ThreadMXBean threads = java.lang.management.ManagementFactory.getThreadMXBean();
+		if (!(threads instanceof com.sun.management.ThreadMXBean)) {
+			return;		// this JVM can't measure allocation
+		}
+		com.sun.management.ThreadMXBean sunThreads = (com.sun.management.ThreadMXBean) threads;
+		long threadId = Thread.currentThread().getId();
+		
+		IndexedTokenMatcher<FauxItem> itm = getPopulatedITM();
+		SearchContext context = new SearchContext();
+		CountingSink sink = new CountingSink();
+		String[] queries = { "house", "h", "ro", "roof mat", "kitchen cab", "cellar d", "Living Room", "mortgage" };
+		
+		// let the context grow to fit and the search path get compiled
+		for (int i = 0; i < 20000; i++) {
+			itm.search(queries[i % queries.length], 200, context, sink);
+		}
+		
+		// measure the measurement itself, so we can subtract it
+		long before = sunThreads.getThreadAllocatedBytes(threadId);
+		long after = sunThreads.getThreadAllocatedBytes(threadId);
+		long overhead = after - before;
+		
+		before = sunThreads.getThreadAllocatedBytes(threadId);
+		for (int i = 0; i < 1000; i++) {
+			itm.search(queries[i % queries.length], 200, context, sink);
+		}
+		after = sunThreads.getThreadAllocatedBytes(threadId);
+		Assert.assertEquals(0, after - before - overhead);
+		Assert.assertTrue(sink.count > 0);
+	}
+	
+	@Test
+	public void memoryReportCoversStructures() {
+		IndexedTokenMatcher<FauxItem> itm = getPopulatedITM();
+		
+		// the prefix code arrays aren't built until a search needs them
+		Assert.assertEquals(0, itm.getMemoryReport().getBytes("prefix code arrays"));
+		itm.search("house", 20, new SearchContext(), new CountingSink());
+		
+		MemoryReport report = itm.getMemoryReport();
+		String[] structures = { "searchableTerms entries", "token lists", "keystone postings", "prefixes", "termCount",
+			"indexedKeys", "prefix code arrays" };
+		long sum = 0;
+		for (String structure : structures) {
+			Assert.assertTrue(structure, report.getBytes(structure) > 0);
+			sum = sum + report.getBytes(structure);
+		}
+		// the sample items are already lowercase, so their lowercase strings are the items' own Strings
+		Assert.assertEquals(0, report.getBytes("lowercase strings"));
+		Assert.assertEquals(0, report.getBytes("columnar store"));
+		Assert.assertEquals(sum, report.getTotalBytes());
+	}
+	
+	@Test
+	public void memoryBudgetKeepsResults() {
+		ITMConfig config = new ITMConfig();
+		config.setColumnarStore(true);
+		config.setMemoryBudget(1);
+		IndexedTokenMatcher<FauxItem> itm = getGeneratedITM(20000, null);
+		IndexedTokenMatcher<FauxItem> budgeted = getGeneratedITM(20000, config);
+		
+		// with this many postings, packing them into the prefix code arrays is cheaper than boxing them
+		MemoryReport report = budgeted.getMemoryReport();
+		Assert.assertEquals(0, report.getBytes("keystone postings"));
+		Assert.assertEquals(0, report.getBytes("prefixes"));
+		Assert.assertEquals(0, report.getBytes("termCount"));
+		Assert.assertEquals(0, report.getBytes("indexedKeys"));
+		Assert.assertEquals(0, report.getBytes("columnar store"));
+		Assert.assertTrue(report.getBytes("prefix code arrays") > 0);
+		Assert.assertTrue(report.getTotalBytes() < itm.getMemoryReport().getTotalBytes());
+		
+		String[] queries = { "ba", "bar", "b", "do ke", "kel mi", "zu", "sab", "mortgage", "" };
+		for (String query : queries) {
+			Assert.assertEquals(query, displayValues(itm.search(query)), displayValues(budgeted.search(query)));
+		}
+		budgeted.analyzeIndexes();
+	}
+	
+	@Test
+	public void memoryBudgetShrinksSmallMatcher() {
+		ITMConfig config = new ITMConfig();
+		config.setMemoryBudget(1);
+		IndexedTokenMatcher<FauxItem> itm = getPopulatedITM();
+		IndexedTokenMatcher<FauxItem> budgeted = getPopulatedITM(config);
+		
+		// the fixed-size prefix code arrays would be far bigger than these few postings, so the boxed maps stay
+		MemoryReport report = budgeted.getMemoryReport();
+		Assert.assertEquals(0, report.getBytes("indexedKeys"));
+		Assert.assertEquals(0, report.getBytes("prefix code arrays"));
+		Assert.assertTrue(report.getBytes("keystone postings") > 0);
+		Assert.assertTrue(report.getTotalBytes() < itm.getMemoryReport().getTotalBytes());
+		
+		String[] queries = { "house", "hou", "h", "ro", "roof mat", "cab kit", "cellar d", "mortgage", "" };
+		for (String query : queries) {
+			Assert.assertEquals(query, displayValues(itm.search(query)), displayValues(budgeted.search(query)));
+		}
+	}
+	
+	@Test
+	public void infixMatchesComeLast() {
+		ITMConfig config = new ITMConfig();
+		config.setInfixSearch(true);
+		IndexedTokenMatcher<FauxItem> itm = getPopulatedITM(config);
+		
+		// "living room" and "family room" match by token; "bathroom" and "washroom" only contain "room"
+		List<IndexedResult<FauxItem>> results = itm.search("room");
+		Assert.assertEquals(4, results.size());
+		Assert.assertEquals(IndexedResult.OTHER_MATCH, results.get(1).getMatchType("room"));
+		Assert.assertEquals(IndexedResult.NO_MATCH, results.get(2).getMatchType("room"));
+		Assert.assertEquals("bathroom", results.get(2).getRawObject().name);
+		Assert.assertEquals("washroom", results.get(3).getDisplayValue().substring(10, 18));
+		Assert.assertEquals(2, getPopulatedITM().search("room").size());
+		
+		// no token starts with "top", but "housetop" contains it
+		Assert.assertEquals(1, itm.search("top").size());
+		Assert.assertEquals("housetop", itm.search("top").get(0).getRawObject().synonym1);
+		
+		// too short for infix matching
+		Assert.assertEquals(0, itm.search("oo").size());
+	}
+	
+	@Test
+	public void infixMatchesAreComplete() {
+		ITMConfig config = new ITMConfig();
+		config.setInfixSearch(true);
+		IndexedTokenMatcher<FauxItem> itm = getPopulatedITM(config);
+		SearchContext context = new SearchContext();
+		
+		String[] queries = { "oom", "room", "ome", "use", "ar d", "lar", "ing ro", "tack", "cab", "xyz", "e m" };
+		for (String query : queries) {
+			List<IndexedResult<FauxItem>> results = itm.search(query);
+			CollectingSink sink = new CollectingSink();
+			itm.search(query, 200, context, sink);
+			Assert.assertEquals(query, results, sink.results);
+			
+			// every entry containing the query comes back, and nothing else but token-based matches
+			int expected = 0;
+			for (IndexedResult<FauxItem> indexedResult : results) {
+				boolean contains = indexedResult.getLowerString().contains(query);
+				boolean tokenMatch = indexedResult.getMatchType(query) != IndexedResult.NO_MATCH;
+				Assert.assertTrue(query, contains || tokenMatch);
+				if (contains) {
+					expected++;
+				}
+			}
+			int containing = 0;
+			for (String s : new String[] { "house", "home", "domicile", "roof", "housetop", "chimney", "smokestack",
+					"living room", "family room", "kitchen", "bathroom", "washroom", "loo", "cellar", "basement",
+					"roofing material", "shingle", "slate", "cellar dweller", "mouse", "rat", "cupboard",
+					"kitchen cabinet" }) {
+				if (s.contains(query)) {
+					containing++;
+				}
+			}
+			Assert.assertEquals(query, containing, expected);
+		}
+	}
+	
+	@Test
+	public void tokenCompletions() {
+		ITMConfig config = new ITMConfig();
+		config.setTokenCompletions(true);
+		config.setTokenCompletionCount(2);
+		IndexedTokenMatcher<FauxItem> itm = getPopulatedITM(config);
+		
+		// "room" is in two entries, "roof" and "roofing" in one each (and "roof" comes first)
+		Assert.assertEquals(Arrays.asList("room", "roof"), itm.completeToken("ro", 10));
+		Assert.assertEquals(Arrays.asList("room"), itm.completeToken("living RO", 1));
+		Assert.assertEquals(Arrays.asList("roofing"), itm.completeToken("roofi", 10));
+		Assert.assertEquals(Arrays.asList("kitchen"), itm.completeToken("kit", 10));
+		Assert.assertEquals(0, itm.completeToken("room ", 10).size());
+		Assert.assertEquals(0, itm.completeToken("xyz", 10).size());
+		
+		// every completion starts with the prefix, and they come most frequent first
+		String[] prefixes = { "r", "h", "ho", "c", "ce", "s", "m", "k", "l", "lo", "b", "f" };
+		for (String prefix : prefixes) {
+			List<String> completions = itm.completeToken(prefix, 10);
+			Assert.assertTrue(prefix, (completions.size() > 0) && (completions.size() <= 2));
+			for (int i = 0; i < completions.size(); i++) {
+				Assert.assertTrue(prefix, completions.get(i).startsWith(prefix));
+				if (i > 0) {
+					Assert.assertTrue(prefix, countEntriesWithToken(itm, completions.get(i - 1))
+						>= countEntriesWithToken(itm, completions.get(i)));
+				}
+			}
+		}
+		
+		// not enabled by default
+		Assert.assertEquals(0, getPopulatedITM().completeToken("ro", 10).size());
+	}
+	
+	@Test
+	public void exactIndexMatchesDefault() {
+		ITMConfig config = new ITMConfig();
+		config.setExactIndex(true);
+		IndexedTokenMatcher<FauxItem> itm = getPopulatedITM();
+		IndexedTokenMatcher<FauxItem> exact = getPopulatedITM(config);
+		SearchContext context = new SearchContext();
+		
+		String[] queries = { "house", "HOUSE", "housetop", "living room", "living  room", "loo", "cellar", "ro", "-",
+			"kitchen cabinet", "mortgage" };
+		int[] maxCounts = { 1, 2, 200 };
+		for (String query : queries) {
+			for (int maxCount : maxCounts) {
+				Assert.assertEquals(query, displayValues(itm.search(query, maxCount)),
+					displayValues(exact.search(query, maxCount)));
+				CollectingSink expected = new CollectingSink();
+				CollectingSink sink = new CollectingSink();
+				itm.search(query, maxCount, context, expected);
+				exact.search(query, maxCount, context, sink);
+				Assert.assertEquals(query, displayValues(expected.results), displayValues(sink.results));
+				Assert.assertEquals(query, expected.matchTypes, sink.matchTypes);
+			}
+		}
+	}
+	
+	@Test
+	public void searchExact() {
+		ITMConfig config = new ITMConfig();
+		config.setExactIndex(true);
+		IndexedTokenMatcher<FauxItem> itm = getPopulatedITM();
+		IndexedTokenMatcher<FauxItem> exact = getPopulatedITM(config);
+		
+		// the same answers with or without the index
+		for (IndexedTokenMatcher<FauxItem> matcher : Arrays.asList(itm, exact)) {
+			Assert.assertEquals(1, matcher.searchExact("Cellar", false).size());
+			Assert.assertEquals("id7", matcher.searchExact("Cellar", false).get(0).getRawObject().id);
+			Assert.assertEquals(0, matcher.searchExact("living-room", false).size());
+			Assert.assertEquals("id4", matcher.searchExact("Living-Room", true).get(0).getRawObject().id);
+			Assert.assertFalse(matcher.searchExact(" family  room! ", true).get(0).byTerm());
+			Assert.assertEquals(0, matcher.searchExact("cellar dwell", true).size());
+			Assert.assertEquals(0, matcher.searchExact("--", true).size());
+		}
+	}
+	
+	// get the display value of each result (for comparing results from different matchers)
+	private List<String> displayValues(List<IndexedResult<FauxItem>> results) {
+		List<String> displayValues = new ArrayList<String>();
+		for (IndexedResult<FauxItem> indexedResult : results) {
+			displayValues.add(indexedResult.getDisplayValue());
+		}
+		return displayValues;
+	}
+	
+	// count the entries of 'itm' that have 'token' among their tokens
+	private int countEntriesWithToken(IndexedTokenMatcher<FauxItem> itm, String token) {
+		int count = 0;
+		for (IndexedResult<FauxItem> indexedResult : itm.search(token, 1000)) {
+			if (indexedResult.getTokens().contains(token)) {
+				count++;
+			}
+		}
+		return count;
+	}
+	
 	// instantiate, populate, and return a sample matcher with ten items
 	private IndexedTokenMatcher<FauxItem> getPopulatedITM() {
+		return getPopulatedITM(null);
+	}
+	
+	// instantiate, populate, and return a sample matcher with ten items, built using the given config
+	private IndexedTokenMatcher<FauxItem> getPopulatedITM(ITMConfig config) {
 		List<IndexedObject<FauxItem>> wrappedItems = new ArrayList<IndexedObject<FauxItem>>();
 		
 		wrappedItems.add(new FauxWrapper(new FauxItem("id1", "house", "home", "domicile")));
@@ -57,7 +366,47 @@ public class IndexedTokenManagerTests {
 		wrappedItems.add(new FauxWrapper(new FauxItem("id9", "cellar dweller", "mouse", "rat")));
 		wrappedItems.add(new FauxWrapper(new FauxItem("id10", "cupboard", "kitchen cabinet", null)));
 		
-		return new IndexedTokenMatcher<FauxItem>(wrappedItems);
+		return new IndexedTokenMatcher<FauxItem>(wrappedItems, false, config);
+	}
+	
+	// instantiate, populate, and return a matcher with 'count' generated items, each with a three-word name and a
+	// two-word synonym, built using the given config
+	private IndexedTokenMatcher<FauxItem> getGeneratedITM(int count, ITMConfig config) {
+		String[] syllables = { "ba", "do", "ke", "mi", "zu", "sa", "lo", "ti", "ne", "ra", "gu", "fe", "po", "ci",
+			"hy", "wa", "ju", "ve", "qo", "xi" };
+		List<IndexedObject<FauxItem>> wrappedItems = new ArrayList<IndexedObject<FauxItem>>();
+		for (int i = 0; i < count; i++) {
+			String[] words = new String[5];
+			for (int w = 0; w < words.length; w++) {
+				int n = (i * (2 * w + 1)) + (7 * w);
+				words[w] = syllables[n % 20] + syllables[(n / 20) % 20] + syllables[(n / 400) % 20];
+			}
+			wrappedItems.add(new FauxWrapper(new FauxItem("id" + i, words[0] + " " + words[1] + " " + words[2],
+				words[3] + " " + words[4], null)));
+		}
+		return new IndexedTokenMatcher<FauxItem>(wrappedItems, false, config);
+	}
+	
+	// a sink that collects the results passed to it
+	class CollectingSink implements ResultSink<FauxItem> {
+		List<IndexedResult<FauxItem>> results = new ArrayList<IndexedResult<FauxItem>>();
+		List<Integer> matchTypes = new ArrayList<Integer>();
+		
+		@Override
+		public void accept(IndexedResult<FauxItem> result, int matchType) {
+			results.add(result);
+			matchTypes.add(matchType);
+		}
+	}
+	
+	// a sink that just counts the results passed to it, so it allocates nothing itself
+	class CountingSink implements ResultSink<FauxItem> {
+		long count = 0;
+		
+		@Override
+		public void accept(IndexedResult<FauxItem> result, int matchType) {
+			count++;
+		}
 	}
 	
 	// a sample data item
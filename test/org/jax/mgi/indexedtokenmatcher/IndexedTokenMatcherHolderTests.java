@@ -0,0 +1,176 @@
+package org.jax.mgi.indexedtokenmatcher;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+// includes various tests for the IndexedTokenMatcherHolder class
+public class IndexedTokenMatcherHolderTests {
+	@Test
+	public void emptyBeforeFirstBuild() {
+		IndexedTokenMatcherHolder<String> holder = new IndexedTokenMatcherHolder<String>(new SwitchableSource());
+		Assert.assertNull(holder.get());
+		Assert.assertEquals(0, holder.search("house").size());
+		holder.shutdown();
+	}
+
+	@Test
+	public void initialBuild() throws Exception {
+		IndexedTokenMatcherHolder<String> holder = new IndexedTokenMatcherHolder<String>(new SwitchableSource());
+		holder.rebuildNow();
+		Assert.assertEquals(1, holder.getGeneration());
+		Assert.assertEquals(1, holder.search("house").size());
+		Assert.assertEquals("house", holder.search("house").get(0).getRawObject());
+		holder.shutdown();
+	}
+
+	@Test
+	public void rebuildSwapsMatcher() throws Exception {
+		SwitchableSource source = new SwitchableSource();
+		IndexedTokenMatcherHolder<String> holder = new IndexedTokenMatcherHolder<String>(source);
+		IndexedTokenMatcher<String> first = holder.rebuildNow();
+		Assert.assertEquals(0, holder.search("garage").size());
+
+		source.words.add("garage");
+		IndexedTokenMatcher<String> second = holder.rebuild().get();
+		Assert.assertNotSame(first, second);
+		Assert.assertSame(second, holder.get());
+		Assert.assertEquals(2, holder.getGeneration());
+		Assert.assertEquals(1, holder.search("garage").size());
+
+		// a search against the old snapshot still completes against the old data
+		Assert.assertEquals(0, first.search("garage").size());
+		holder.shutdown();
+	}
+
+	@Test
+	public void failedRebuildKeepsOldMatcher() throws Exception {
+		SwitchableSource source = new SwitchableSource();
+		IndexedTokenMatcherHolder<String> holder = new IndexedTokenMatcherHolder<String>(source);
+		IndexedTokenMatcher<String> first = holder.rebuildNow();
+
+		source.fail = true;
+		try {
+			holder.rebuildNow();
+			Assert.fail("expected the rebuild to fail");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+		Assert.assertSame(first, holder.get());
+		Assert.assertEquals(1, holder.getGeneration());
+		holder.shutdown();
+	}
+
+	@Test
+	public void statisticsReported() throws Exception {
+		IndexedTokenMatcherHolder<String> holder = new IndexedTokenMatcherHolder<String>(new SwitchableSource());
+		holder.rebuildNow();
+		holder.search("kit");
+		holder.rebuildNow();
+		Assert.assertTrue(holder.getLastBuildMillis() >= 0);
+		Assert.assertTrue(holder.getLastWarmupMillis() >= 0);
+		Assert.assertTrue(holder.getLastSwapNanos() >= 0);
+		Assert.assertEquals(holder.get().getMemoryReport().getTotalBytes(), holder.getLastHeapOverlapBytes());
+
+		// built before publishing, for the zero-garbage search, so they're part of the overlap
+		Assert.assertTrue(holder.get().getMemoryReport().getBytes("prefix code arrays") > 0);
+		Assert.assertTrue(holder.getLogMessages().size() > 0);
+		holder.shutdown();
+	}
+
+	@Test
+	public void recordedQueriesReplayAndDiff() throws Exception {
+		File logFile = File.createTempFile("queries", ".qlog");
+		logFile.delete();
+		QueryRecorder recorder = new QueryRecorder(logFile.getPath(), 100);
+		SwitchableSource source = new SwitchableSource();
+		IndexedTokenMatcherHolder<String> holder = new IndexedTokenMatcherHolder<String>(source);
+		holder.setQueryRecorder(recorder);
+		IndexedTokenMatcher<String> first = holder.rebuildNow();
+		holder.search("house");
+		holder.search("ga", 10);
+		holder.search("ga", 10);
+		recorder.close();
+
+		List<QueryLogEntry> entries = QueryRecorder.read(logFile.getPath());
+		Assert.assertEquals(3, entries.size());
+		Assert.assertEquals("house", entries.get(0).getQuery());
+		Assert.assertEquals(200, entries.get(0).getMaxCount());
+		Assert.assertEquals(1, entries.get(0).getResultCount());
+		Assert.assertEquals(0, entries.get(1).getResultCount());
+
+		// a new index that adds "garage" changes the results of one (distinct) search
+		source.words.add("garage");
+		holder.setWarmupLog(entries);
+		IndexedTokenMatcher<String> second = holder.rebuildNow();
+		Assert.assertEquals(0, QueryReplay.diff(first, first, entries, 10).size());
+		List<String> differences = QueryReplay.diff(first, second, entries, 10);
+		Assert.assertEquals(1, differences.size());
+		Assert.assertTrue(differences.get(0), differences.get(0).startsWith("\"ga\""));
+		holder.shutdown();
+		logFile.delete();
+	}
+
+	// a source of single-word items, which can be changed between builds or made to fail
+	class SwitchableSource implements Callable<List<IndexedObject<String>>> {
+		List<String> words = new ArrayList<String>();
+		boolean fail = false;
+
+		public SwitchableSource() {
+			words.add("house");
+			words.add("kitchen");
+			words.add("cellar");
+		}
+
+		@Override
+		public List<IndexedObject<String>> call() {
+			if (fail) {
+				throw new IllegalStateException("source unavailable");
+			}
+			List<IndexedObject<String>> items = new ArrayList<IndexedObject<String>>();
+			for (String word : words) {
+				items.add(new WordWrapper(word));
+			}
+			return items;
+		}
+	}
+
+	// a wrapper over a single word, relying on the default comparator in IndexedResult
+	class WordWrapper implements IndexedObject<String> {
+		String word;
+
+		public WordWrapper(String word) {
+			this.word = word;
+		}
+
+		@Override
+		public Comparator<IndexedObject<String>> getComparator() {
+			return null;
+		}
+
+		@Override
+		public String getUniqueKey() {
+			return this.word;
+		}
+
+		@Override
+		public String getTerm() {
+			return this.word;
+		}
+
+		@Override
+		public List<String> getSynonyms() {
+			return new ArrayList<String>();
+		}
+
+		@Override
+		public String getObject() {
+			return this.word;
+		}
+	}
+}
@@ -0,0 +1,156 @@
+package org.jax.mgi.indexedtokenmatcher;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+// includes various tests for the QueryRecorder class
+public class QueryRecorderTests {
+	@Test
+	public void flushesAppendToOneLog() throws Exception {
+		File logFile = newLogFile();
+		QueryRecorder recorder = new QueryRecorder(logFile.getPath(), 10);
+		recorder.record("house", 200, 2, 1500000);
+		recorder.record("kitchen cab", 20, 1, 2000);
+		Assert.assertEquals(2, recorder.flush());
+		Assert.assertEquals(0, recorder.flush());
+		recorder.record("r\u00f6\u00f6f", 5, 0, 999);
+		recorder.close();
+
+		List<QueryLogEntry> entries = QueryRecorder.read(logFile.getPath());
+		Assert.assertEquals(3, entries.size());
+		Assert.assertEquals("house", entries.get(0).getQuery());
+		Assert.assertEquals(200, entries.get(0).getMaxCount());
+		Assert.assertEquals(2, entries.get(0).getResultCount());
+		Assert.assertEquals(1500000, entries.get(0).getLatencyNanos());
+		Assert.assertEquals("kitchen cab", entries.get(1).getQuery());
+		Assert.assertEquals("r\u00f6\u00f6f", entries.get(2).getQuery());
+		Assert.assertEquals(0, entries.get(2).getLatencyNanos());		// rounded down to the microsecond
+		Assert.assertTrue(entries.get(2).getTimestamp() >= entries.get(0).getTimestamp());
+		Assert.assertEquals(3, recorder.getFlushedCount());
+		logFile.delete();
+	}
+
+	@Test
+	public void overflowKeepsNewestEntries() throws Exception {
+		File logFile = newLogFile();
+		QueryRecorder recorder = new QueryRecorder(logFile.getPath(), 4);
+		for (int i = 0; i < 10; i++) {
+			recorder.record("q" + i, 10, 0, 0);
+		}
+		Assert.assertEquals(4, recorder.flush());
+		Assert.assertEquals(6, recorder.getDroppedCount());
+
+		List<QueryLogEntry> entries = QueryRecorder.read(logFile.getPath());
+		Assert.assertEquals("q6", entries.get(0).getQuery());
+		Assert.assertEquals("q9", entries.get(3).getQuery());
+		logFile.delete();
+	}
+
+	@Test
+	public void concurrentRecording() throws Exception {
+		File logFile = newLogFile();
+		final QueryRecorder recorder = new QueryRecorder(logFile.getPath(), 10000, 5);
+		Thread[] threads = new Thread[8];
+		for (int t = 0; t < threads.length; t++) {
+			final String prefix = "t" + t + "-";
+			threads[t] = new Thread() {
+				public void run() {
+					for (int i = 0; i < 1000; i++) {
+						recorder.record(prefix + i, 10, 1, 100000);
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		recorder.close();
+
+		Assert.assertEquals(8000, recorder.getRecordedCount());
+		Assert.assertEquals(0, recorder.getDroppedCount());
+		Assert.assertEquals(8000, QueryRecorder.read(logFile.getPath()).size());
+		logFile.delete();
+	}
+
+	@Test
+	public void rollsOverAndReadsTail() throws Exception {
+		File logFile = newLogFile();
+		File rolledFile = new File(logFile.getPath() + ".1");
+		Assert.assertTrue(QueryRecorder.readTail(logFile.getPath(), 10).isEmpty());
+
+		// each flush is one block of well over 20 bytes, so every flush after the first rolls the file over
+		QueryRecorder recorder = new QueryRecorder(logFile.getPath(), 10);
+		recorder.setMaxFileBytes(20);
+		for (int i = 0; i < 9; i++) {
+			recorder.record("query " + i, 10, 1, 1000);
+			if (i % 3 == 2) {
+				recorder.flush();
+			}
+		}
+		Assert.assertEquals(3, QueryRecorder.read(logFile.getPath()).size());
+		Assert.assertEquals("query 3", QueryRecorder.read(rolledFile.getPath()).get(0).getQuery());
+
+		// the tail spans both files, oldest first
+		List<QueryLogEntry> tail = QueryRecorder.readTail(logFile.getPath(), 4);
+		Assert.assertEquals(4, tail.size());
+		Assert.assertEquals("query 5", tail.get(0).getQuery());
+		Assert.assertEquals("query 8", tail.get(3).getQuery());
+		Assert.assertEquals(6, QueryRecorder.readTail(logFile.getPath(), 100).size());
+		Assert.assertTrue(QueryRecorder.readTail(logFile.getPath(), 0).isEmpty());
+		logFile.delete();
+		rolledFile.delete();
+	}
+
+	@Test
+	public void recoversFromCutOffBlock() throws Exception {
+		File logFile = newLogFile();
+		QueryRecorder recorder = new QueryRecorder(logFile.getPath(), 10);
+		recorder.record("house", 10, 1, 1000);
+		recorder.record("roof", 10, 1, 1000);
+		recorder.flush();
+		recorder.record("kitchen cab", 10, 1, 1000);
+		recorder.close();
+
+		// as if the process died partway through writing the second block
+		RandomAccessFile file = new RandomAccessFile(logFile, "rw");
+		file.setLength(file.length() - 3);
+		file.close();
+		Assert.assertEquals(2, QueryRecorder.read(logFile.getPath()).size());
+		Assert.assertEquals(2, QueryRecorder.readTail(logFile.getPath(), 10).size());
+
+		// the next recorder cuts the partial block off before appending, so its entries can be read
+		recorder = new QueryRecorder(logFile.getPath(), 10);
+		recorder.record("cellar", 10, 1, 1000);
+		recorder.flush();
+		recorder.record("chimney", 10, 1, 1000);
+		recorder.close();
+		List<QueryLogEntry> entries = QueryRecorder.read(logFile.getPath());
+		Assert.assertEquals(4, entries.size());
+		Assert.assertEquals("roof", entries.get(1).getQuery());
+		Assert.assertEquals("cellar", entries.get(2).getQuery());
+		Assert.assertEquals("chimney", entries.get(3).getQuery());
+
+		// likewise if only part of the header was written
+		file = new RandomAccessFile(logFile, "rw");
+		file.setLength(2);
+		file.close();
+		Assert.assertEquals(0, QueryRecorder.read(logFile.getPath()).size());
+		recorder = new QueryRecorder(logFile.getPath(), 10);
+		recorder.record("house", 10, 1, 1000);
+		recorder.close();
+		Assert.assertEquals("house", QueryRecorder.read(logFile.getPath()).get(0).getQuery());
+		logFile.delete();
+	}
+
+	// get a path for a new (not yet existing) log file
+	private File newLogFile() throws Exception {
+		File logFile = File.createTempFile("queries", ".qlog");
+		logFile.delete();
+		return logFile;
+	}
+}